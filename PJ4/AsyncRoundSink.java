@@ -0,0 +1,265 @@
+/*************************************************
+ File: [AsyncRoundSink.java]
+ By: [Artsem Holdvekht]
+ Description: [Thread-safe RoundSink that hands results to a writer thread through a bounded buffer]
+ *************************************************/
+package PJ4;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+
+/** class AsyncRoundSink : accept() only puts the result into a bounded queue,
+ *  one writer thread drains the queue in batches into the target sink and
+ *  flushes the target once per batch. Dealing threads never wait for the
+ *  target, only for free space in the queue.
+ *
+ *  When the queue is full accept() either waits (no result is lost) or,
+ *  with dropWhenFull, drops the result and counts it in getDropped().
+ *
+ *  If the target throws, the writer keeps emptying the queue without
+ *  writing and accept(), flush() and close() rethrow the failure wrapped
+ *  in an IllegalStateException, so no dealing thread waits on a dead writer.
+ *
+ *  accept() shares nothing with the other dealing threads but the queue.
+ *  close() sets closed, queues END and, once the writer has stopped, writes
+ *  what accept() calls that had passed their closed check queued after it.
+ *  An accept() that finds closed set after its put takes its result back
+ *  and throws, unless close() has already written it.
+ *
+ *  java PJ4.AsyncRoundSink [threads] [rounds per thread]   throughput test
+ */
+class AsyncRoundSink implements RoundSink {
+
+    /* tells the writer thread to stop */
+    private static final RoundResult END = new RoundResult(new Card[0], 0, 0, HandEvaluator.NO_WIN, 0, 0, 0);
+
+    private final RoundSink target;
+    private final BlockingQueue<RoundResult> queue;
+    private final int batchSize;
+    private final boolean dropWhenFull;
+    private final Thread writer;
+
+    private final LongAdder accepted = new LongAdder();
+    private final AtomicLong written = new AtomicLong();
+    private final LongAdder dropped = new LongAdder();
+    private volatile Throwable failure;
+
+    private volatile boolean closed;
+
+    /**
+     * Constructor: a sink writing into target from its own thread.
+     *
+     * @param capacity     results the queue holds before accept() waits or drops
+     * @param batchSize    results written between two flushes of target
+     * @param dropWhenFull drop results instead of waiting for queue space
+     */
+    AsyncRoundSink(RoundSink target, int capacity, int batchSize, boolean dropWhenFull)
+    {
+        this.target = target;
+        this.queue = new ArrayBlockingQueue<RoundResult>(capacity);
+        this.batchSize = batchSize;
+        this.dropWhenFull = dropWhenFull;
+        writer = new Thread(this::drain, "round-sink-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    AsyncRoundSink(RoundSink target)
+    {
+        this(target, 1 << 16, 1024, false);
+    }
+
+    /**
+     * Task: Queues the result, thread-safe.
+     */
+    public void accept(RoundResult result)
+    {
+        checkFailure();
+        if (closed)
+        {
+            throw new IllegalStateException("Sink is closed");
+        }
+        try
+        {
+            if (dropWhenFull)
+            {
+                if (!queue.offer(result))
+                {
+                    dropped.increment();
+                    return;
+                }
+            }
+            else
+            {
+                queue.put(result);
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            dropped.increment();
+            return;
+        }
+        // close() may have written out the queue already, a result still in it is not written
+        if (closed && queue.remove(result))
+        {
+            throw new IllegalStateException("Sink is closed");
+        }
+        accepted.increment();
+    }
+
+    private void checkFailure()
+    {
+        if (failure != null)
+            throw new IllegalStateException("Round sink writer failed", failure);
+    }
+
+    /* writer thread */
+    private void drain()
+    {
+        List<RoundResult> batch = new ArrayList<RoundResult>(batchSize);
+        try
+        {
+            while (true)
+            {
+                batch.add(queue.take());
+                queue.drainTo(batch, batchSize - 1);
+                // results queued after END are written with the batch
+                boolean end = batch.remove(END);
+                // after a failure the queue is still emptied, so put() never waits forever
+                write(batch);
+                if (end)
+                    return;
+            }
+        }
+        catch (InterruptedException e)
+        {
+            // stopped
+        }
+    }
+
+    /* writes and flushes batch unless the target has failed, then clears it */
+    private void write(List<RoundResult> batch)
+    {
+        if (failure == null && !batch.isEmpty())
+        {
+            try
+            {
+                for (RoundResult result : batch)
+                    target.accept(result);
+                target.flush();
+                written.addAndGet(batch.size());
+            }
+            catch (RuntimeException | Error e)
+            {
+                failure = e;
+            }
+        }
+        batch.clear();
+    }
+
+    /**
+     * Task: Waits until every result accepted so far has been written and flushed.
+     */
+    public void flush()
+    {
+        long target = accepted.sum();
+        while (written.get() < target && writer.isAlive() && failure == null)
+        {
+            LockSupport.parkNanos(50_000);
+        }
+        checkFailure();
+    }
+
+    /**
+     * Task: Writes out the queue, stops the writer thread and closes the target.
+     */
+    public synchronized void close()
+    {
+        if (closed)
+            return;
+        closed = true;
+        try
+        {
+            queue.put(END);
+            writer.join();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        // results queued after END by accept() calls that passed their closed check before
+        List<RoundResult> late = new ArrayList<RoundResult>();
+        queue.drainTo(late);
+        late.remove(END);
+        write(late);
+        target.close();
+        checkFailure();
+    }
+
+    long getWritten()
+    {
+        return written.get();
+    }
+
+    long getDropped()
+    {
+        return dropped.sum();
+    }
+
+
+    /* Throughput test: many tables settle into one text log, synchronously and through this sink */
+    public static void main(String args[]) throws Exception
+    {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 500_000;
+        java.io.File file = java.io.File.createTempFile("rounds", ".log");
+        file.deleteOnExit();
+
+        // like println: one write to the file per round, all tables behind one lock
+        final TextRoundSink text = new TextRoundSink(new java.io.FileOutputStream(file));
+        RoundSink locked = new RoundSink()
+        {
+            public synchronized void accept(RoundResult result)
+            {
+                text.accept(result);
+                text.flush();
+            }
+        };
+        run("synchronized, flush per round", locked, threads, rounds);
+        run("async batched", new AsyncRoundSink(new TextRoundSink(new java.io.FileOutputStream(file))), threads, rounds);
+    }
+
+    private static void run(String name, RoundSink sink, int threads, int rounds) throws Exception
+    {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        SplittableRandom seeds = new SplittableRandom(42);
+        List<Future<?>> done = new ArrayList<Future<?>>();
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++)
+        {
+            GameSession session = new GameSession(new IntDeck(1, seeds.split()), VideoPoker.getMultipliers(), Integer.MAX_VALUE / 2);
+            session.setSink(sink);
+            done.add(pool.submit(() -> {
+                for (int i = 0; i < rounds; i++)
+                {
+                    session.bet(1);
+                    session.deal();
+                    session.draw();
+                    session.settle();
+                }
+                return null;
+            }));
+        }
+        for (Future<?> table : done)
+            table.get();
+        sink.close();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        pool.shutdown();
+        System.out.printf("%-32s %10.0f rounds/s%n", name, (long) threads * rounds / seconds);
+    }
+}
@@ -0,0 +1,401 @@
+/*************************************************
+ File: [BalanceLedger.java]
+ By: [Artsem Holdvekht]
+ Description: [Crash-safe append-only journal of settled rounds on memory-mapped files]
+ *************************************************/
+package PJ4;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.CRC32C;
+
+
+/** class BalanceLedger : every settled round is appended as one record
+ *
+ *      long sessionId, int bet, int payout, int balance, int crc32c   (24 bytes)
+ *
+ *  after a 16 byte header (MAGIC, VERSION, RECORD_SIZE, 0). The checksum
+ *  covers the record number followed by the first 20 bytes, so a record
+ *  only validates at the position it was appended to. The file is mapped
+ *  in segments; append() reserves its slot with one atomic add and writes
+ *  the record into the mapping with one copy, so appends never wait for the
+ *  disk or for each other. Each finished append sets a completion flag and
+ *  moves the written watermark past every record finished in order.
+ *
+ *  Group commit: a background thread forces the mapping up to the written
+ *  watermark every commitMillis. sync() waits for the next commit, so a
+ *  caller that needs durability pays for one force shared with everyone else.
+ *
+ *  Recovery: opening an existing journal scans the records up to the first
+ *  one with a wrong checksum (a torn or never written tail) and keeps the
+ *  last balance of every session, see getRecoveredBalances(). Everything
+ *  after the last good record is cleared, so records that followed a hole
+ *  cannot come back once new appends reach them again.
+ *
+ *  java PJ4.BalanceLedger [file] [threads] [rounds per thread]   test
+ */
+class BalanceLedger implements AutoCloseable {
+
+    static final int MAGIC = 0x504A344C;    // "PJ4L"
+    static final int VERSION = 2;
+    static final int HEADER_SIZE = 16;
+    static final int RECORD_SIZE = 24;
+
+    /* bytes covered by the checksum, after the record number */
+    private static final int CHECKED_SIZE = RECORD_SIZE - 4;
+
+    private static final byte[] ZERO = new byte[RECORD_SIZE];
+
+    /* records per mapped segment, about 48 MB */
+    private static final int SEGMENT_RECORDS = 1 << 21;
+    private static final long SEGMENT_SIZE = (long) SEGMENT_RECORDS * RECORD_SIZE;
+
+    /* completion flags, appends may run at most this far ahead of the watermark */
+    private static final int RING = 1 << 14;
+
+    /* per thread record number and record image, and checksum */
+    private static final ThreadLocal<ByteBuffer> RECORD = ThreadLocal.withInitial(() -> ByteBuffer.allocate(8 + RECORD_SIZE));
+    private static final ThreadLocal<CRC32C> CRC = ThreadLocal.withInitial(CRC32C::new);
+
+    private final FileChannel channel;
+    private final Map<Long, Integer> recovered;
+
+    /* mapped segments, grown under the lock of this object */
+    private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+
+    /* next record number */
+    private final AtomicLong position = new AtomicLong();
+
+    /* records copied into the mapping, advanced in record order */
+    private final AtomicLong written = new AtomicLong();
+
+    /* number of the last record finished in each slot of a ring */
+    private final AtomicLongArray finished = new AtomicLongArray(RING);
+    private volatile IOException failure;
+
+    /* records known to be on disk */
+    private final AtomicLong committed = new AtomicLong();
+
+    private final long commitNanos;
+    private final Thread committer;
+    private volatile boolean closed;
+
+    /**
+     * Constructor: opens or creates the journal and recovers its balances.
+     *
+     * @param commitMillis time between two group commits
+     */
+    BalanceLedger(Path file, int commitMillis) throws IOException
+    {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        commitNanos = commitMillis * 1_000_000L;
+        if (channel.size() < HEADER_SIZE)
+        {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putInt(RECORD_SIZE).putInt(0).flip();
+            channel.write(header, 0);
+            channel.force(true);
+        }
+        else
+        {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            channel.read(header, 0);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION || header.getInt(8) != RECORD_SIZE)
+            {
+                channel.close();
+                throw new IOException(file + " is not a version " + VERSION + " balance ledger");
+            }
+        }
+        recovered = Collections.unmodifiableMap(recover());
+        written.set(position.get());
+        committed.set(position.get());
+        for (int i = 0; i < RING; i++)
+            finished.set(i, -1);
+
+        committer = new Thread(this::commitLoop, "ledger-commit");
+        committer.setDaemon(true);
+        committer.start();
+    }
+
+    /* scans the good records, sets position after the last one */
+    private Map<Long, Integer> recover() throws IOException
+    {
+        Map<Long, Integer> balances = new HashMap<Long, Integer>();
+        long records = (channel.size() - HEADER_SIZE) / RECORD_SIZE;
+        CRC32C crc = new CRC32C();
+        ByteBuffer number = ByteBuffer.allocate(8);
+        long record = 0;
+        for (; record < records; record++)
+        {
+            ByteBuffer segment = segment(record);
+            int offset = offsetOf(record);
+            crc.reset();
+            crc.update(number.putLong(0, record).array(), 0, 8);
+            crc.update(segment.slice(offset, CHECKED_SIZE));
+            if ((int) crc.getValue() != segment.getInt(offset + CHECKED_SIZE))
+                break;
+            balances.put(segment.getLong(offset), segment.getInt(offset + 16));
+        }
+        position.set(record);
+        clearTail(record);
+        return balances;
+    }
+
+    /* zeroes the records from the given one on and drops unmapped segments */
+    private void clearTail(long from) throws IOException
+    {
+        MappedByteBuffer[] mapped = segments;
+        long mappedEnd = HEADER_SIZE + mapped.length * SEGMENT_SIZE;
+        if (channel.size() > mappedEnd)
+            channel.truncate(mappedEnd);
+        if (from < (long) mapped.length * SEGMENT_RECORDS)
+        {
+            MappedByteBuffer segment = segment(from);
+            for (int offset = offsetOf(from); offset < SEGMENT_SIZE; offset += RECORD_SIZE)
+            {
+                if (segment.getLong(offset) != 0 || segment.getLong(offset + 8) != 0 || segment.getLong(offset + 16) != 0)
+                    segment.put(offset, ZERO);
+            }
+            segment.force();
+        }
+        channel.force(true);
+    }
+
+    private static int offsetOf(long record)
+    {
+        return (int) (record % SEGMENT_RECORDS) * RECORD_SIZE;
+    }
+
+    /* segment of a record, maps it (and grows the file) on first use */
+    private MappedByteBuffer segment(long record) throws IOException
+    {
+        int index = (int) (record / SEGMENT_RECORDS);
+        MappedByteBuffer[] mapped = segments;
+        if (index < mapped.length)
+            return mapped[index];
+        synchronized (this)
+        {
+            mapped = segments;
+            if (index >= mapped.length)
+            {
+                mapped = Arrays.copyOf(mapped, index + 1);
+                for (int i = segments.length; i <= index; i++)
+                    mapped[i] = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_SIZE + i * SEGMENT_SIZE, SEGMENT_SIZE);
+                segments = mapped;
+            }
+            return mapped[index];
+        }
+    }
+
+    /**
+     * Task: Appends one settled round, thread-safe. Does not wait for the disk.
+     */
+    void append(long sessionId, int bet, int payout, int balance)
+    {
+        if (closed)
+            throw new IllegalStateException("Ledger is closed");
+        if (failure != null)
+            throw new java.io.UncheckedIOException(failure);
+        long record = position.getAndIncrement();
+        ByteBuffer image = RECORD.get();
+        image.putLong(0, record).putLong(8, sessionId).putInt(16, bet).putInt(20, payout).putInt(24, balance);
+        CRC32C crc = CRC.get();
+        crc.reset();
+        crc.update(image.array(), 0, 8 + CHECKED_SIZE);
+        image.putInt(8 + CHECKED_SIZE, (int) crc.getValue());
+
+        try
+        {
+            segment(record).put(offsetOf(record), image.array(), 8, RECORD_SIZE);
+        }
+        catch (IOException e)
+        {
+            // the watermark stays before this record, sync() reports the failure
+            failure = e;
+            throw new java.io.UncheckedIOException(e);
+        }
+        publish(record);
+    }
+
+    /* marks a record finished and advances the written watermark */
+    private void publish(long record)
+    {
+        // the slot is reused only after the record RING before it was passed
+        while (record - written.get() >= RING && failure == null)
+            Thread.yield();
+        finished.set((int) (record & (RING - 1)), record);
+        for (;;)
+        {
+            long end = written.get();
+            if (finished.get((int) (end & (RING - 1))) != end)
+                return;
+            written.compareAndSet(end, end + 1);
+        }
+    }
+
+    /**
+     * Task: Returns a sink that appends the rounds of one session.
+     */
+    RoundSink sinkFor(long sessionId)
+    {
+        return result -> append(sessionId, result.getBet(), result.getPayout(), result.getBalance());
+    }
+
+    /**
+     * Task: Waits until every record appended before this call is on disk.
+     */
+    void sync()
+    {
+        long target = position.get();
+        while (committed.get() < target && committer.isAlive() && failure == null)
+        {
+            LockSupport.unpark(committer);
+            LockSupport.parkNanos(100_000);
+        }
+        if (failure != null)
+            throw new java.io.UncheckedIOException(failure);
+    }
+
+    /* forces the records written since the last commit */
+    private void commit()
+    {
+        long last = committed.get();
+        long end = written.get();
+        if (end == last)
+            return;
+        // every record below end was copied, so its segment is mapped
+        MappedByteBuffer[] mapped = segments;
+        int first = (int) (last / SEGMENT_RECORDS);
+        int lastSegment = (int) ((end - 1) / SEGMENT_RECORDS);
+        for (int i = first; i <= lastSegment; i++)
+            mapped[i].force();
+        committed.set(end);
+    }
+
+    private void commitLoop()
+    {
+        while (!closed)
+        {
+            LockSupport.parkNanos(commitNanos);
+            commit();
+        }
+    }
+
+    /* last balance of every session found on disk when the ledger was opened */
+    Map<Long, Integer> getRecoveredBalances()
+    {
+        return recovered;
+    }
+
+    /* records in the journal */
+    long getRecords()
+    {
+        return position.get();
+    }
+
+    public void close() throws IOException
+    {
+        if (closed)
+            return;
+        closed = true;
+        LockSupport.unpark(committer);
+        try
+        {
+            committer.join();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        commit();
+        channel.close();
+    }
+
+
+    /* Test: settle rounds from many tables, reopen the journal and compare balances */
+    public static void main(String args[]) throws Exception
+    {
+        Path file = Paths.get(args.length > 0 ? args[0] : "ledger.bin");
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 250_000;
+        Files.deleteIfExists(file);
+
+        GameSession[] sessions = new GameSession[threads];
+        Thread[] tables = new Thread[threads];
+        long start;
+        try (BalanceLedger ledger = new BalanceLedger(file, 10))
+        {
+            SplittableRandom seeds = new SplittableRandom(42);
+            for (int t = 0; t < threads; t++)
+            {
+                GameSession session = new GameSession(new IntDeck(1, seeds.split()), VideoPoker.getMultipliers(), 1_000_000);
+                session.setSink(ledger.sinkFor(t));
+                sessions[t] = session;
+                tables[t] = new Thread(() -> {
+                    for (int i = 0; i < rounds; i++)
+                    {
+                        session.bet(1);
+                        session.deal();
+                        session.draw();
+                        session.settle();
+                    }
+                });
+            }
+            start = System.nanoTime();
+            for (Thread table : tables)
+                table.start();
+            for (Thread table : tables)
+                table.join();
+            ledger.sync();
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("Settled %d rounds in %.2f s, %.0f settlements/s (durable)%n",
+                    ledger.getRecords(), seconds, ledger.getRecords() / seconds);
+        }
+
+        start = System.nanoTime();
+        try (BalanceLedger ledger = new BalanceLedger(file, 10))
+        {
+            boolean same = ledger.getRecords() == (long) threads * rounds;
+            for (int t = 0; t < threads; t++)
+                same &= ledger.getRecoveredBalances().get((long) t) == sessions[t].getBalance();
+            System.out.printf("Recovered %d records in %.0f ms, balances match: %b%n",
+                    ledger.getRecords(), (System.nanoTime() - start) / 1e6, same);
+        }
+
+        // tear the last record, recovery must stop before it
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE))
+        {
+            long last = HEADER_SIZE + ((long) threads * rounds - 1) * RECORD_SIZE;
+            channel.write(ByteBuffer.wrap(new byte[] {0x55}), last + 3);
+        }
+        try (BalanceLedger ledger = new BalanceLedger(file, 10))
+        {
+            System.out.println("After a torn last record: " + ledger.getRecords() + " records");
+        }
+
+        // punch a hole, append after it and reopen: the old tail must stay gone
+        long hole = (long) threads * rounds / 2;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE))
+        {
+            channel.write(ByteBuffer.wrap(new byte[] {0x55}), HEADER_SIZE + hole * RECORD_SIZE + 3);
+        }
+        try (BalanceLedger ledger = new BalanceLedger(file, 10))
+        {
+            ledger.append(-1, 1, 0, 0);
+            ledger.append(-1, 1, 0, 0);
+        }
+        try (BalanceLedger ledger = new BalanceLedger(file, 10))
+        {
+            System.out.printf("After a hole at %d and two appends: %d records (expected %d)%n",
+                    hole, ledger.getRecords(), hole + 2);
+        }
+        Files.deleteIfExists(file);
+    }
+}
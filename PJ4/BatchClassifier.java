@@ -0,0 +1,116 @@
+/*************************************************
+ File: [BatchClassifier.java]
+ By: [Artsem Holdvekht]
+ Description: [Classifies arrays of packed 5-card hands, scalar reference of the vector classifier]
+ *************************************************/
+package PJ4;
+
+import java.util.Objects;
+
+
+/** class BatchClassifier : hand types of many hands at once.
+ *
+ *  A hand is one int with 6 bits per card code, card i at bits 6*i (the
+ *  HandHistory packing). The hand types are the VideoPoker ones, the same
+ *  values HandEvaluator returns, NO_WIN for a losing hand.
+ *
+ *  This is the scalar loop. PJ4.vector.VectorBatchClassifier does the same
+ *  with the incubating Vector API and must give identical results; it uses
+ *  this class for the hands that do not fill a whole vector.
+ *
+ *  evaluate() is the bulk entry point of the simulators, the payout auditor
+ *  and GameSession (and so the servers): it allocates nothing, checks the
+ *  array bounds once and runs one counted loop of table reads.
+ *  Every card code must be 0-51.
+ */
+public final class BatchClassifier {
+
+    /* hand types, see HandEvaluator */
+    public static final int NO_WIN          = HandEvaluator.NO_WIN;
+    public static final int ROYAL_PAIR      = HandEvaluator.ROYAL_PAIR;
+    public static final int TWO_PAIRS       = HandEvaluator.TWO_PAIRS;
+    public static final int THREE_OF_A_KIND = HandEvaluator.THREE_OF_A_KIND;
+    public static final int STRAIGHT        = HandEvaluator.STRAIGHT;
+    public static final int FLUSH           = HandEvaluator.FLUSH;
+    public static final int FULL_HOUSE      = HandEvaluator.FULL_HOUSE;
+    public static final int FOUR_OF_A_KIND  = HandEvaluator.FOUR_OF_A_KIND;
+    public static final int STRAIGHT_FLUSH  = HandEvaluator.STRAIGHT_FLUSH;
+    public static final int ROYAL_FLUSH     = HandEvaluator.ROYAL_FLUSH;
+
+    /* bits and mask of one card in a packed hand */
+    public static final int CARD_BITS = HandHistory.CARD_BITS;
+    public static final int CARD_MASK = HandHistory.CARD_MASK;
+
+    private BatchClassifier()
+    {
+    }
+
+    /**
+     * Task: Packs 5 card codes (0-51) into one hand.
+     */
+    public static int pack(int c0, int c1, int c2, int c3, int c4)
+    {
+        return c0 | (c1 << CARD_BITS) | (c2 << (2 * CARD_BITS)) | (c3 << (3 * CARD_BITS)) | (c4 << (4 * CARD_BITS));
+    }
+
+    /**
+     * Task: Returns the hand type of one packed hand.
+     */
+    public static int classify(int hand)
+    {
+        return HandEvaluator.evaluateCodes(hand & CARD_MASK, (hand >>> CARD_BITS) & CARD_MASK,
+                (hand >>> (2 * CARD_BITS)) & CARD_MASK, (hand >>> (3 * CARD_BITS)) & CARD_MASK,
+                (hand >>> (4 * CARD_BITS)) & CARD_MASK);
+    }
+
+    /**
+     * Task: Writes the hand type of hands[i] to types[i] for i in [offset, offset + length).
+     */
+    public static void classify(int[] hands, int[] types, int offset, int length)
+    {
+        Objects.checkFromIndexSize(offset, length, hands.length);
+        Objects.checkFromIndexSize(offset, length, types.length);
+        for (int i = offset; i < offset + length; i++)
+            types[i] = classify(hands[i]);
+    }
+
+    /**
+     * Task: Classifies and pays hands[i] for i in [offset, offset + length).
+     *
+     * @param multipliers multiplier of every winning hand type, Royal Pair first
+     * @param types       receives the hand types
+     * @param payouts     receives the payout per unit bet, multipliers[type] or 0 for NO_WIN
+     */
+    public static void evaluate(int[] hands, int[] multipliers, int[] types, int[] payouts, int offset, int length)
+    {
+        Objects.checkFromIndexSize(offset, length, hands.length);
+        Objects.checkFromIndexSize(offset, length, types.length);
+        Objects.checkFromIndexSize(offset, length, payouts.length);
+        if (multipliers.length <= ROYAL_FLUSH)
+        {
+            throw new IllegalArgumentException("Need " + (ROYAL_FLUSH + 1) + " multipliers, got " + multipliers.length);
+        }
+        for (int i = offset; i < offset + length; i++)
+        {
+            int type = classify(hands[i]);
+            types[i] = type;
+            payouts[i] = type == NO_WIN ? 0 : multipliers[type];
+        }
+    }
+
+    /**
+     * Task: Returns true if a packed hand holds 5 different card codes 0-51.
+     */
+    public static boolean isValid(int hand)
+    {
+        long seen = 0;
+        for (int i = 0; i < 5; i++)
+        {
+            int code = (hand >>> (CARD_BITS * i)) & CARD_MASK;
+            if (code >= Cards.DECK_SIZE || (seen & (1L << code)) != 0)
+                return false;
+            seen |= 1L << code;
+        }
+        return true;
+    }
+}
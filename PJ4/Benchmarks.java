@@ -0,0 +1,367 @@
+/*************************************************
+ File: [Benchmarks.java]
+ By: [Artsem Holdvekht]
+ Description: [Throughput and allocation measurements of the Card, Decks and VideoPoker hot paths]
+ *************************************************/
+package PJ4;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.random.RandomGeneratorFactory;
+
+
+/** class Benchmarks : runs each measurement a few times after a warm up
+ *  and prints the best ns/op and the bytes allocated per operation.
+ *
+ *  Every benchmark runs in its own JVM by default, so the JIT profile of one
+ *  benchmark (e.g. the call site of Operation.run) can't slow down the next.
+ *
+ *  java PJ4.Benchmarks                    run all benchmarks
+ *  java PJ4.Benchmarks -save FILE         run and record the results as a baseline
+ *  java PJ4.Benchmarks -compare FILE      run and compare against a recorded baseline
+ *  java PJ4.Benchmarks -nofork            run all benchmarks in this JVM
+ *  java PJ4.Benchmarks NAME-PREFIX ...    run only matching benchmarks
+ */
+class Benchmarks {
+
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURE_ROUNDS = 5;
+
+    /* operations of one round */
+    private static final int OPERATIONS = 200_000;
+
+    /* written by the benchmarks so the JIT can't drop their work */
+    static volatile long sink;
+
+    /* per thread allocation counter of HotSpot, null if not available */
+    private static final com.sun.management.ThreadMXBean threads = allocationCounter();
+
+    /** A measured operation, run() is called OPERATIONS times per round */
+    interface Operation
+    {
+        void run();
+    }
+
+    /* prefix of the result line a forked benchmark prints for its parent */
+    private static final String RESULT_LINE = "#result ";
+
+    /* registered benchmarks, in run order */
+    private final Map<String, Operation> operations = new LinkedHashMap<String, Operation>();
+
+    /* name -> {ns/op, bytes/op} of the benchmarks run so far, in run order */
+    private final Map<String, double[]> results = new LinkedHashMap<String, double[]>();
+
+    /* true in a forked JVM, results go to the parent instead of the console */
+    private boolean child;
+
+    /**
+     * Task: Adds a benchmark.
+     */
+    void register(String name, Operation operation)
+    {
+        operations.put(name, operation);
+    }
+
+    private static com.sun.management.ThreadMXBean allocationCounter()
+    {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported())
+        {
+            ((com.sun.management.ThreadMXBean) bean).setThreadAllocatedMemoryEnabled(true);
+            return (com.sun.management.ThreadMXBean) bean;
+        }
+        return null;
+    }
+
+    private static long allocatedBytes()
+    {
+        return threads == null ? 0 : threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Task: Measures an operation in this JVM and records its best time and
+     *       its allocation per operation.
+     */
+    void measure(String name, Operation operation)
+    {
+        double best = Double.MAX_VALUE;
+        double bytes = 0;
+        for (int round = 0; round < WARMUP_ROUNDS + MEASURE_ROUNDS; round++)
+        {
+            long allocated = allocatedBytes();
+            long start = System.nanoTime();
+            for (int i = 0; i < OPERATIONS; i++)
+            {
+                operation.run();
+            }
+            double nsPerOp = (double) (System.nanoTime() - start) / OPERATIONS;
+            if (round >= WARMUP_ROUNDS)
+            {
+                best = Math.min(best, nsPerOp);
+                bytes = (double) (allocatedBytes() - allocated) / OPERATIONS;
+            }
+        }
+        record(name, best, bytes);
+    }
+
+    /**
+     * Task: Measures a benchmark in a new JVM with the same class path.
+     */
+    void fork(String name) throws IOException
+    {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        Process child = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                Benchmarks.class.getName(), "-child", name).redirectErrorStream(true).start();
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(child.getInputStream())))
+        {
+            String line;
+            while ((line = in.readLine()) != null)
+            {
+                if (line.startsWith(RESULT_LINE))
+                {
+                    String[] fields = line.substring(RESULT_LINE.length()).split(" ");
+                    record(fields[0], Double.parseDouble(fields[1]), Double.parseDouble(fields[2]));
+                }
+                else
+                {
+                    System.out.println(line);
+                }
+            }
+        }
+    }
+
+    private void record(String name, double nsPerOp, double bytesPerOp)
+    {
+        results.put(name, new double[] {nsPerOp, bytesPerOp});
+        if (child)
+            System.out.println(RESULT_LINE + name + " " + nsPerOp + " " + bytesPerOp);
+        else
+            System.out.printf("%-45s %10.1f ns/op %14.0f ops/s %10.1f B/op%n", name, nsPerOp, 1e9 / nsPerOp, bytesPerOp);
+    }
+
+    /**
+     * Task: Per-shuffle cost of the former Collections.shuffle default
+     *       against the pluggable generators of Decks.
+     */
+    void shuffleBenchmarks()
+    {
+        final List<Card> list = new ArrayList<Card>();
+        for (int code = 0; code < Cards.DECK_SIZE; code++)
+            list.add(Cards.byCode(code));
+        register("shuffle.Collections.shuffle", () -> {
+            Collections.shuffle(list);
+            sink += list.get(0).getRank();
+        });
+
+        final Decks splittable = new Decks(1, new SplittableRandom(42));
+        register("shuffle.Decks.SplittableRandom", () -> {
+            splittable.shuffle();
+            sink += splittable.remain();
+        });
+
+        final Decks xoroshiro = new Decks(1, RandomGeneratorFactory.of("Xoroshiro128PlusPlus").create(42));
+        register("shuffle.Decks.Xoroshiro128PlusPlus", () -> {
+            xoroshiro.shuffle();
+            sink += xoroshiro.remain();
+        });
+    }
+
+    /**
+     * Task: checkHands classification throughput over random 5-card hands.
+     */
+    void evaluateBenchmarks()
+    {
+        final int hands = 1 << 12;
+        final Card[] cards = new Card[hands * GameSession.HAND_SIZE];
+        final int[] codes = new int[hands * GameSession.HAND_SIZE];
+        IntDeck deck = new IntDeck(1, new SplittableRandom(7));
+        for (int h = 0; h < hands; h++)
+        {
+            deck.reset();
+            deck.deal(codes, h * GameSession.HAND_SIZE, GameSession.HAND_SIZE);
+            for (int i = 0; i < GameSession.HAND_SIZE; i++)
+                cards[h * GameSession.HAND_SIZE + i] = Cards.byCode(codes[h * GameSession.HAND_SIZE + i]);
+        }
+
+        final int[] next = new int[1];
+        register("evaluate.cards", () -> {
+            int at = next[0] = next[0] + GameSession.HAND_SIZE == cards.length ? 0 : next[0] + GameSession.HAND_SIZE;
+            sink += HandEvaluator.evaluate(cards[at], cards[at + 1], cards[at + 2], cards[at + 3], cards[at + 4]);
+        });
+        register("evaluate.codes", () -> {
+            int at = next[0] = next[0] + GameSession.HAND_SIZE == codes.length ? 0 : next[0] + GameSession.HAND_SIZE;
+            sink += HandEvaluator.evaluateCodes(codes[at], codes[at + 1], codes[at + 2], codes[at + 3], codes[at + 4]);
+        });
+
+        // one op = 64 packed hands through the bulk API
+        final int batch = 64;
+        final int[] packed = new int[hands];
+        for (int h = 0; h < hands; h++)
+            packed[h] = HandHistory.pack(codes, h * GameSession.HAND_SIZE);
+        final int[] multipliers = VideoPoker.getMultipliers();
+        final int[] types = new int[hands];
+        final int[] payouts = new int[hands];
+        final int[] nextBatch = new int[1];
+        register("evaluate.batch64", () -> {
+            int at = nextBatch[0] = nextBatch[0] + batch == hands ? 0 : nextBatch[0] + batch;
+            BatchClassifier.evaluate(packed, multipliers, types, payouts, at, batch);
+            sink += payouts[at];
+        });
+    }
+
+    /**
+     * Task: shuffle, deal and reset cost of 1 and n decks.
+     */
+    void deckBenchmarks(int n)
+    {
+        final Decks decks = new Decks(n, new SplittableRandom(11));
+        final Card[] hand = new Card[10];
+        register("decks." + n + ".shuffle", () -> {
+            decks.shuffle();
+            sink += decks.remain();
+        });
+        register("decks." + n + ".reset+deal10", () -> {
+            decks.reset();
+            sink += decks.deal(hand, 0, 10);
+        });
+        register("decks." + n + ".reset+shuffle+deal10", () -> {
+            decks.reset();
+            decks.shuffle();
+            sink += decks.deal(hand, 0, 10);
+        });
+        register("decks." + n + ".dealList5", () -> {
+            decks.reset();
+            try
+            {
+                sink += decks.deal(5).size();
+            }
+            catch (PlayingCardException e)
+            {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        final IntDeck intDeck = new IntDeck(n, new SplittableRandom(11));
+        final int[] codes = new int[10];
+        register("intdeck." + n + ".reset+deal10", () -> {
+            intDeck.reset();
+            sink += intDeck.deal(codes, 0, 10);
+        });
+    }
+
+    /**
+     * Task: a full headless round, bet to settle.
+     */
+    void roundBenchmarks()
+    {
+        final GameSession decks = new GameSession(new Decks(1, new SplittableRandom(3)), VideoPoker.getMultipliers(), Integer.MAX_VALUE / 2);
+        final GameSession intDeck = new GameSession(new IntDeck(1, new SplittableRandom(3)), VideoPoker.getMultipliers(), Integer.MAX_VALUE / 2);
+        register("round.Decks", () -> sink += playRound(decks));
+        register("round.IntDeck", () -> sink += playRound(intDeck));
+    }
+
+    private static int playRound(GameSession session)
+    {
+        if (session.getBalance() < 1000)
+            throw new IllegalStateException("balance exhausted");
+        session.bet(1);
+        Card[] hand = session.deal();
+        session.hold(hand[0].getRank() == hand[1].getRank() ? 3 : 0);
+        session.draw();
+        return session.settle().getHandType();
+    }
+
+    /**
+     * Task: Writes the results as "name=ns/op bytes/op" lines.
+     */
+    void save(File file) throws IOException
+    {
+        try (PrintWriter out = new PrintWriter(new FileWriter(file)))
+        {
+            for (Map.Entry<String, double[]> result : results.entrySet())
+                out.println(result.getKey() + "=" + result.getValue()[0] + " " + result.getValue()[1]);
+        }
+        System.out.println("Baseline saved to " + file);
+    }
+
+    /**
+     * Task: Prints the change of every result against a saved baseline.
+     */
+    void compare(File file) throws IOException
+    {
+        Properties baseline = new Properties();
+        try (Reader in = new FileReader(file))
+        {
+            baseline.load(in);
+        }
+        System.out.printf("%n%-45s %12s %12s %9s %10s%n", "Compared to " + file, "base ns/op", "ns/op", "change", "B/op");
+        for (Map.Entry<String, double[]> result : results.entrySet())
+        {
+            String recorded = baseline.getProperty(result.getKey());
+            if (recorded == null)
+                continue;
+            double before = Double.parseDouble(recorded.trim().split(" ")[0]);
+            double now = result.getValue()[0];
+            System.out.printf("%-45s %12.1f %12.1f %+8.1f%% %10.1f%n", result.getKey(), before, now,
+                    (now - before) * 100 / before, result.getValue()[1]);
+        }
+    }
+
+
+    public static void main(String args[]) throws IOException
+    {
+        File save = null;
+        File compare = null;
+        boolean fork = true;
+        List<String> filters = new ArrayList<String>();
+        Benchmarks benchmarks = new Benchmarks();
+        benchmarks.shuffleBenchmarks();
+        benchmarks.evaluateBenchmarks();
+        benchmarks.deckBenchmarks(1);
+        benchmarks.deckBenchmarks(6);
+        benchmarks.roundBenchmarks();
+
+        for (int i = 0; i < args.length; i++)
+        {
+            if (args[i].equals("-child"))
+            {
+                // forked by the parent: run one benchmark and report it
+                String name = args[++i];
+                benchmarks.child = true;
+                benchmarks.measure(name, benchmarks.operations.get(name));
+                return;
+            }
+            else if (args[i].equals("-save"))
+                save = new File(args[++i]);
+            else if (args[i].equals("-compare"))
+                compare = new File(args[++i]);
+            else if (args[i].equals("-nofork"))
+                fork = false;
+            else
+                filters.add(args[i]);
+        }
+
+        for (Map.Entry<String, Operation> benchmark : benchmarks.operations.entrySet())
+        {
+            String name = benchmark.getKey();
+            if (!filters.isEmpty() && filters.stream().noneMatch(name::startsWith))
+                continue;
+            if (fork)
+                benchmarks.fork(name);
+            else
+                benchmarks.measure(name, benchmark.getValue());
+        }
+
+        double[] before = benchmarks.results.get("shuffle.Collections.shuffle");
+        double[] after = benchmarks.results.get("shuffle.Decks.SplittableRandom");
+        if (before != null && after != null)
+            System.out.printf("shuffle speed up over Collections.shuffle: %.2fx%n", before[0] / after[0]);
+
+        if (save != null)
+            benchmarks.save(save);
+        if (compare != null)
+            benchmarks.compare(compare);
+    }
+}
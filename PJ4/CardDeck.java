@@ -0,0 +1,50 @@
+/*************************************************
+ File: [CardDeck.java]
+ By: [Artsem Holdvekht]
+ Description: [Common operations of the deck implementations used by VideoPoker]
+ *************************************************/
+package PJ4;
+
+import java.util.List;
+
+
+/** interface CardDeck : a deck VideoPoker can reset, shuffle and deal from.
+ *  Implemented by Decks (list of Card objects) and IntDeck (array of card codes).
+ */
+interface CardDeck {
+
+    /**
+     * Task: Shuffles the remaining cards.
+     */
+    void shuffle();
+
+    /**
+     * Task: Deals cards from the deal deck.
+     *
+     * @param numberCards number of cards to deal
+     * @return a list containing cards that were dealt
+     * @throw PlayingCardException if numberCards > number of remaining cards
+     */
+    List<Card> deal(int numberCards) throws PlayingCardException;
+
+    /**
+     * Task: Deals cards into a caller supplied array, without allocating
+     *       and without throwing when the deck runs out.
+     *
+     * @param hand        array receiving the cards
+     * @param offset      index of the first card in hand
+     * @param numberCards number of cards to deal
+     * @return number of cards dealt, less than numberCards if the deck ran out
+     */
+    int deal(Card[] hand, int offset, int numberCards);
+
+    /**
+     * Task: Puts all the dealt cards back in the deck.
+     */
+    void reset();
+
+    /**
+     * Task: Return number of remaining cards in deal deck.
+     */
+    int remain();
+}
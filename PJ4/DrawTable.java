@@ -0,0 +1,215 @@
+/*************************************************
+ File: [DrawTable.java]
+ By: [Artsem Holdvekht]
+ Description: [Precomputed hand type counts of every card subset, used to count the draws of all 32 holds]
+ *************************************************/
+package PJ4;
+
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.nio.file.Paths;
+
+
+/** class DrawTable : for every subset of 0 to 4 cards of the 52-card deck,
+ *  the number of 5-card hands of each hand type that contain the subset.
+ *
+ *  Counting the draws of a hold: the final hands of holding H from a dealt
+ *  hand D are the 5-card hands that contain H and no other card of D. By
+ *  inclusion-exclusion over the 32 subsets T of D:
+ *
+ *      draws(H) = sum over T with H in T in D of (-1)^|T\H| * hands(T)
+ *
+ *  hands(T) comes from the table (or is the dealt hand itself for |T| = 5),
+ *  so all 32 holds cost 32 lookups and a 5 step subset transform instead of
+ *  evaluating up to 1.5 million draws per hold.
+ *
+ *  Subsets are indexed in the combinatorial number system: the sorted codes
+ *  c0 < c1 < ... < ck-1 have index C(c0,1) + C(c1,2) + ... + C(ck-1,k).
+ *  Hand types are stored at handType + 1 (0 = losing hand).
+ *
+ *  The counts are built in memory on first use, or, when the system
+ *  property pj4.tables names a RankingTables file with draw counts, read
+ *  from that file mapped off-heap. A file that cannot be mapped or fails
+ *  the header check is reported on System.err and the table is built.
+ */
+final class DrawTable {
+
+    /* number of hand type slots, index handType + 1 */
+    static final int TYPES = HandEvaluator.ROYAL_FLUSH + 2;
+
+    static final int HOLDS = 1 << GameSession.HAND_SIZE;
+
+    /* cards left after the deal */
+    static final int STUB = Cards.DECK_SIZE - GameSession.HAND_SIZE;
+
+    /* BINOMIAL[n][k] = C(n, k) */
+    static final int[][] BINOMIAL = new int[Cards.DECK_SIZE + 1][GameSession.HAND_SIZE + 1];
+
+    static
+    {
+        for (int n = 0; n <= Cards.DECK_SIZE; n++)
+        {
+            BINOMIAL[n][0] = 1;
+            for (int k = 1; k <= GameSession.HAND_SIZE && k <= n; k++)
+                BINOMIAL[n][k] = BINOMIAL[n - 1][k - 1] + (k <= n - 1 ? BINOMIAL[n - 1][k] : 0);
+        }
+    }
+
+    /* system property naming a RankingTables file */
+    static final String TABLES_PROPERTY = "pj4.tables";
+
+    /* counts[k].get(index * TYPES + handType + 1) for subsets of k cards */
+    private final IntBuffer[] counts;
+
+    /**
+     * Constructor: a table over counts of the layout above, e.g. mapped from a file
+     */
+    DrawTable(IntBuffer[] counts)
+    {
+        this.counts = counts;
+    }
+
+    /**
+     * Task: Computes the table, about 0.5 s.
+     */
+    static DrawTable build()
+    {
+        int[][] counts = new int[GameSession.HAND_SIZE][];
+        for (int k = 0; k < GameSession.HAND_SIZE; k++)
+            counts[k] = new int[BINOMIAL[Cards.DECK_SIZE][k] * TYPES];
+
+        int[] hand = new int[GameSession.HAND_SIZE];
+        int[] index = new int[HOLDS];
+        for (hand[4] = 4; hand[4] < Cards.DECK_SIZE; hand[4]++)
+            for (hand[3] = 3; hand[3] < hand[4]; hand[3]++)
+                for (hand[2] = 2; hand[2] < hand[3]; hand[2]++)
+                    for (hand[1] = 1; hand[1] < hand[2]; hand[1]++)
+                        for (hand[0] = 0; hand[0] < hand[1]; hand[0]++)
+                        {
+                            int slot = HandEvaluator.evaluateCodes(hand[0], hand[1], hand[2], hand[3], hand[4]) + 1;
+                            subsetIndexes(hand, index);
+                            for (int subset = 0; subset < HOLDS - 1; subset++)
+                                counts[Integer.bitCount(subset)][index[subset] * TYPES + slot]++;
+                        }
+
+        IntBuffer[] buffers = new IntBuffer[GameSession.HAND_SIZE];
+        for (int k = 0; k < GameSession.HAND_SIZE; k++)
+            buffers[k] = IntBuffer.wrap(counts[k]);
+        return new DrawTable(buffers);
+    }
+
+    /* the mapped table of pj4.tables if it has one, else a built one */
+    private static DrawTable load()
+    {
+        String file = System.getProperty(TABLES_PROPERTY);
+        if (file != null)
+        {
+            try
+            {
+                DrawTable mapped = RankingTables.map(Paths.get(file)).getDrawTable();
+                if (mapped != null)
+                    return mapped;
+            }
+            catch (IOException e)
+            {
+                // a missing or damaged file only costs the time to build the table
+                System.err.println("Ignoring " + TABLES_PROPERTY + "=" + file + ": " + e.getMessage());
+            }
+        }
+        return build();
+    }
+
+    /** The table is loaded on first use, about 11 MB */
+    private static final class Holder
+    {
+        static final DrawTable INSTANCE = load();
+    }
+
+    static DrawTable getInstance()
+    {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Task: Computes the combinatorial index of every subset of a sorted hand.
+     *
+     * @param hand  5 card codes in ascending order
+     * @param index receives HOLDS indexes, bit i of the subset = hand[i]
+     */
+    static void subsetIndexes(int[] hand, int[] index)
+    {
+        index[0] = 0;
+        for (int subset = 1; subset < HOLDS; subset++)
+        {
+            int top = 31 - Integer.numberOfLeadingZeros(subset);
+            index[subset] = index[subset & ~(1 << top)] + BINOMIAL[hand[top]][Integer.bitCount(subset)];
+        }
+    }
+
+    /**
+     * Task: Counts the final hands of every hold of a sorted hand.
+     *
+     * @param hand  5 card codes in ascending order
+     * @param index scratch array of HOLDS ints
+     * @param draws receives HOLDS * TYPES counts, draws[hold * TYPES + handType + 1]
+     *              is the number of draws of the hold ending in that hand type
+     */
+    void drawCounts(int[] hand, int[] index, int[] draws)
+    {
+        subsetIndexes(hand, index);
+        for (int subset = 0; subset < HOLDS - 1; subset++)
+        {
+            counts[Integer.bitCount(subset)].get(index[subset] * TYPES, draws, subset * TYPES, TYPES);
+        }
+        int all = (HOLDS - 1) * TYPES;
+        for (int slot = 0; slot < TYPES; slot++)
+            draws[all + slot] = 0;
+        draws[all + HandEvaluator.evaluateCodes(hand[0], hand[1], hand[2], hand[3], hand[4]) + 1] = 1;
+
+        // superset inclusion-exclusion, one card at a time
+        for (int bit = 1; bit < HOLDS; bit <<= 1)
+        {
+            for (int subset = 0; subset < HOLDS; subset++)
+            {
+                if ((subset & bit) == 0)
+                {
+                    int to = subset * TYPES;
+                    int from = (subset | bit) * TYPES;
+                    for (int slot = 0; slot < TYPES; slot++)
+                        draws[to + slot] -= draws[from + slot];
+                }
+            }
+        }
+    }
+
+    /**
+     * Task: Returns a read-only view of the counts of the subsets of k cards.
+     */
+    IntBuffer getCounts(int k)
+    {
+        return counts[k].asReadOnlyBuffer();
+    }
+
+    /**
+     * Task: Returns the number of possible draws of a hold, C(47, cards drawn).
+     */
+    static int drawsOf(int holdMask)
+    {
+        return BINOMIAL[STUB][GameSession.HAND_SIZE - Integer.bitCount(holdMask)];
+    }
+
+    /**
+     * Task: Returns the summed return per unit bet of all draws of a hold,
+     *       Paytable.returnOf() of every final hand.
+     *
+     * @param draws result of drawCounts()
+     */
+    static long totalReturn(int[] draws, int holdMask, int[] multipliers)
+    {
+        long sum = 0;
+        int base = holdMask * TYPES + 1;
+        for (int type = 0; type < multipliers.length; type++)
+            sum += (long) draws[base + type] * Paytable.returnOf(type, multipliers);
+        return sum;
+    }
+}
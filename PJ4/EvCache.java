@@ -0,0 +1,149 @@
+/*************************************************
+ File: [EvCache.java]
+ By: [Artsem Holdvekht]
+ Description: [Bounded concurrent cache of hold expected values keyed by suit isomorphic hand class]
+ *************************************************/
+package PJ4;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/** class EvCache : HoldAdvisor answers shared by all sessions.
+ *
+ *  Answers are stored once per suit isomorphic class (SuitCanonicalizer),
+ *  as the 32 expected values of the canonical hand. A hit only maps the
+ *  hold masks back to the positions of the asked hand.
+ *
+ *  The cache is bounded: when it is full an insert first evicts some
+ *  entries in map iteration order, which is cheap and good enough since
+ *  every entry can be recomputed in microseconds. Safe for many threads.
+ */
+final class EvCache {
+
+    private final HoldAdvisor advisor;
+    private final int capacity;
+
+    /* class key -> expected values indexed by canonical hold mask */
+    private final ConcurrentHashMap<Integer, double[]> values;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    EvCache(HoldAdvisor advisor, int capacity)
+    {
+        this.advisor = advisor;
+        this.capacity = capacity;
+        this.values = new ConcurrentHashMap<Integer, double[]>(Math.min(capacity, 1 << 16));
+    }
+
+    /**
+     * Task: Returns the expected value of every hold of a 5-card hand.
+     */
+    HoldAdvisor.Advice advise(List<Card> hand)
+    {
+        int[] codes = new int[GameSession.HAND_SIZE];
+        for (int i = 0; i < codes.length; i++)
+            codes[i] = Cards.code(hand.get(i));
+        return advise(codes);
+    }
+
+    /**
+     * Task: Returns the expected value of every hold of 5 card codes.
+     */
+    HoldAdvisor.Advice advise(int[] hand)
+    {
+        int[] canonical = new int[GameSession.HAND_SIZE];
+        int[] position = new int[GameSession.HAND_SIZE];
+        Integer key = SuitCanonicalizer.classOf(SuitCanonicalizer.canonicalize(hand, canonical, position));
+
+        double[] canonicalValues = values.get(key);
+        if (canonicalValues == null)
+        {
+            misses.increment();
+            HoldAdvisor.Advice advice = advisor.advise(canonical);
+            canonicalValues = new double[DrawTable.HOLDS];
+            for (int hold = 0; hold < DrawTable.HOLDS; hold++)
+                canonicalValues[hold] = advice.getExpectedValue(hold);
+            if (values.size() >= capacity)
+                evict();
+            values.putIfAbsent(key, canonicalValues);
+        }
+        else
+        {
+            hits.increment();
+        }
+
+        // canonical card j is card position[j] of the asked hand
+        double[] handValues = new double[DrawTable.HOLDS];
+        int best = 0;
+        for (int canonicalHold = 0; canonicalHold < DrawTable.HOLDS; canonicalHold++)
+        {
+            int hold = 0;
+            for (int j = 0; j < GameSession.HAND_SIZE; j++)
+            {
+                if ((canonicalHold & (1 << j)) != 0)
+                    hold |= 1 << position[j];
+            }
+            handValues[hold] = canonicalValues[canonicalHold];
+        }
+        for (int hold = 1; hold < DrawTable.HOLDS; hold++)
+        {
+            if (handValues[hold] > handValues[best])
+                best = hold;
+        }
+        return new HoldAdvisor.Advice(handValues, best);
+    }
+
+    /* drop about an eighth of the entries */
+    private void evict()
+    {
+        int toRemove = Math.max(1, capacity / 8);
+        Iterator<Integer> keys = values.keySet().iterator();
+        while (toRemove-- > 0 && keys.hasNext())
+        {
+            keys.next();
+            keys.remove();
+        }
+    }
+
+    int size()
+    {
+        return values.size();
+    }
+
+    long getHits()
+    {
+        return hits.sum();
+    }
+
+    long getMisses()
+    {
+        return misses.sum();
+    }
+
+
+    /* Quick test: hit rate and time per answer for random deals */
+    public static void main(String args[])
+    {
+        EvCache cache = new EvCache(new HoldAdvisor(VideoPoker.getMultipliers()), 1 << 16);
+        HoldAdvisor direct = new HoldAdvisor(VideoPoker.getMultipliers());
+        IntDeck deck = new IntDeck(1);
+        int[] hand = new int[GameSession.HAND_SIZE];
+        int rounds = 1_000_000;
+        int mismatches = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++)
+        {
+            deck.reset();
+            deck.deal(hand, 0, GameSession.HAND_SIZE);
+            HoldAdvisor.Advice advice = cache.advise(hand);
+            if (i % 1000 == 0 && Math.abs(advice.getBestValue() - direct.advise(hand).getBestValue()) > 1e-12)
+                mismatches++;
+        }
+        System.out.printf("%.2f us per answer, hits %d, misses %d, size %d, mismatches %d%n",
+                (System.nanoTime() - start) / 1e3 / rounds, cache.getHits(), cache.getMisses(), cache.size(), mismatches);
+    }
+}
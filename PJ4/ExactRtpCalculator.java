@@ -0,0 +1,192 @@
+/*************************************************
+ File: [ExactRtpCalculator.java]
+ By: [Artsem Holdvekht]
+ Description: [Exact return to player of a payout table under optimal play, by enumerating every deal]
+ *************************************************/
+package PJ4;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+
+/** class ExactRtpCalculator : enumerates all 2,598,960 deals, finds the best
+ *  of the 32 holds of each deal and averages its expected return.
+ *
+ *  The draws of all holds are counted through DrawTable, the counts of the
+ *  card subsets are computed once and reused by every deal. One fork/join
+ *  task per pair of the two highest cards of the deal (1,176 tasks of at
+ *  most 19,600 deals) runs the enumeration on all cores.
+ *
+ *  Return per unit bet = Paytable.returnOf() of the final hand, the
+ *  settlement GameSession plays (multiplier + 1 for a win, 0 for NO_WIN).
+ *
+ *  java PJ4.ExactRtpCalculator [m0 m1 ... m8]   (multipliers, Royal Pair first)
+ *  java PJ4.ExactRtpCalculator paytable          (classic, 9/6, 8/5 or a properties file)
+ */
+class ExactRtpCalculator {
+
+    private final int[] multipliers;
+    private final DrawTable table;
+
+    ExactRtpCalculator(int[] multipliers)
+    {
+        if (multipliers.length <= HandEvaluator.ROYAL_FLUSH)
+        {
+            throw new IllegalArgumentException("Need " + (HandEvaluator.ROYAL_FLUSH + 1) + " multipliers, got " + multipliers.length);
+        }
+        this.multipliers = multipliers.clone();
+        this.table = DrawTable.getInstance();
+    }
+
+    /**
+     * Task: Computes the optimal play statistics over all deals.
+     */
+    Result calculate(ForkJoinPool pool)
+    {
+        long start = System.nanoTime();
+        List<DealsWithTopTwo> tasks = new ArrayList<DealsWithTopTwo>();
+        for (int top = GameSession.HAND_SIZE - 1; top < Cards.DECK_SIZE; top++)
+            for (int second = GameSession.HAND_SIZE - 2; second < top; second++)
+                tasks.add(new DealsWithTopTwo(top, second));
+        Result result = pool.invoke(new RecursiveTask<Result>()
+        {
+            private static final long serialVersionUID = 1L;
+
+            protected Result compute()
+            {
+                Result sum = new Result();
+                for (DealsWithTopTwo task : invokeAll(tasks))
+                    sum.add(task.join());
+                return sum;
+            }
+        });
+        result.elapsedNanos = System.nanoTime() - start;
+        return result;
+    }
+
+    /** All deals whose two highest card codes are top and second */
+    private final class DealsWithTopTwo extends RecursiveTask<Result>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final int top;
+        private final int second;
+
+        DealsWithTopTwo(int top, int second)
+        {
+            this.top = top;
+            this.second = second;
+        }
+
+        protected Result compute()
+        {
+            Result result = new Result();
+            int[] hand = new int[GameSession.HAND_SIZE];
+            int[] index = new int[DrawTable.HOLDS];
+            int[] draws = new int[DrawTable.HOLDS * DrawTable.TYPES];
+            hand[4] = top;
+            hand[3] = second;
+            for (hand[2] = 2; hand[2] < hand[3]; hand[2]++)
+                for (hand[1] = 1; hand[1] < hand[2]; hand[1]++)
+                    for (hand[0] = 0; hand[0] < hand[1]; hand[0]++)
+                    {
+                        table.drawCounts(hand, index, draws);
+                        int best = 0;
+                        double bestValue = -1;
+                        for (int hold = 0; hold < DrawTable.HOLDS; hold++)
+                        {
+                            double value = (double) DrawTable.totalReturn(draws, hold, multipliers)
+                                    / DrawTable.drawsOf(hold);
+                            if (value > bestValue)
+                            {
+                                bestValue = value;
+                                best = hold;
+                            }
+                        }
+                        result.add(draws, best, bestValue);
+                    }
+            return result;
+        }
+    }
+
+    /** class Result : sums over the enumerated deals */
+    static final class Result
+    {
+        private long deals;
+        private double returnSum;
+        /* probability mass of each final hand type, index handType + 1 */
+        private final double[] typeSum = new double[DrawTable.TYPES];
+        private long elapsedNanos;
+
+        void add(int[] draws, int hold, double value)
+        {
+            deals++;
+            returnSum += value;
+            double weight = 1.0 / DrawTable.drawsOf(hold);
+            int base = hold * DrawTable.TYPES;
+            for (int slot = 0; slot < DrawTable.TYPES; slot++)
+                typeSum[slot] += draws[base + slot] * weight;
+        }
+
+        void add(Result other)
+        {
+            deals += other.deals;
+            returnSum += other.returnSum;
+            for (int slot = 0; slot < DrawTable.TYPES; slot++)
+                typeSum[slot] += other.typeSum[slot];
+        }
+
+        long getDeals()
+        {
+            return deals;
+        }
+
+        /* expected return per unit bet under optimal play, settled as in GameSession */
+        double getRtp()
+        {
+            return returnSum / deals;
+        }
+
+        /* probability of the final hand type under optimal play */
+        double getFrequency(int handType)
+        {
+            return typeSum[handType + 1] / deals;
+        }
+
+        public String toString()
+        {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("Deals: %d  (%.1f s)%n", deals, elapsedNanos / 1e9));
+            sb.append(String.format("RTP: %.8f%n", getRtp()));
+            for (int type = HandEvaluator.ROYAL_FLUSH; type >= HandEvaluator.NO_WIN; type--)
+                sb.append(String.format("%-16s %.10f%n", VideoPoker.getHandTypeName(type), getFrequency(type)));
+            return sb.toString();
+        }
+    }
+
+
+    public static void main(String args[]) throws java.io.IOException
+    {
+        int[] multipliers = VideoPoker.getMultipliers();
+        if (args.length == 1)
+        {
+            multipliers = Paytable.lookup(args[0]).getMultipliers();
+        }
+        else if (args.length > 0)
+        {
+            if (args.length != multipliers.length)
+            {
+                System.out.println("Need " + multipliers.length + " multipliers, got " + args.length);
+                return;
+            }
+            for (int i = 0; i < multipliers.length; i++)
+                multipliers[i] = Integer.parseInt(args[i]);
+        }
+        System.out.println("Multipliers: " + Arrays.toString(multipliers));
+        long start = System.nanoTime();
+        DrawTable.getInstance();
+        System.out.printf("Draw table ready in %.1f s%n", (System.nanoTime() - start) / 1e9);
+        System.out.println(new ExactRtpCalculator(multipliers).calculate(ForkJoinPool.commonPool()));
+    }
+}
@@ -0,0 +1,200 @@
+/*************************************************
+ File: [GameMetrics.java]
+ By: [Artsem Holdvekht]
+ Description: [Counters and latency histograms of the dealing path, exposed through JMX]
+ *************************************************/
+package PJ4;
+
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.*;
+
+
+/** class GameMetrics : rounds, hand type hits, bets, payouts and sampled
+ *  latencies of GameSession's deal() and settle() steps.
+ *
+ *  Every GameSession reports to GLOBAL unless given its own metrics.
+ *  Counters are LongAdders, so recording from many threads does not
+ *  contend. Latencies are only timed for one round in SAMPLE_MASK + 1, the
+ *  other rounds pay for one increment and one test. A whole step is timed,
+ *  classifying one hand alone takes less time than reading the timer.
+ *
+ *  Pull the values with the getters or, after register(), over JMX.
+ */
+final class GameMetrics implements GameMetricsMXBean {
+
+    /* time one round in 64 */
+    static final int SAMPLE_MASK = 63;
+
+    static final GameMetrics GLOBAL = new GameMetrics();
+
+    static final String OBJECT_NAME = "PJ4:type=GameMetrics";
+
+    private final LongAdder rounds = new LongAdder();
+    private final LongAdder betTotal = new LongAdder();
+    private final LongAdder payoutTotal = new LongAdder();
+
+    /* bets of winning rounds, which GameSession pays "to one" and leaves with the player */
+    private final LongAdder returnedStakeTotal = new LongAdder();
+
+    /* indexed by handType + 1, NO_WIN first */
+    private final LongAdder[] handTypes = new LongAdder[VideoPoker.getMultipliers().length + 1];
+
+    private final LatencyHistogram settleLatency = new LatencyHistogram();
+    private final LatencyHistogram dealLatency = new LatencyHistogram();
+
+    private volatile long since = System.nanoTime();
+
+    GameMetrics()
+    {
+        for (int i = 0; i < handTypes.length; i++)
+            handTypes[i] = new LongAdder();
+    }
+
+    /**
+     * Task: Registers GLOBAL with the platform MBean server, once.
+     */
+    static synchronized void register()
+    {
+        try
+        {
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (!server.isRegistered(name))
+                server.registerMBean(GLOBAL, name);
+        }
+        catch (JMException e)
+        {
+            throw new IllegalStateException("Cannot register " + OBJECT_NAME, e);
+        }
+    }
+
+    /**
+     * Task: Counts one settled round.
+     */
+    void recordRound(int handType, int bet, int payout)
+    {
+        rounds.increment();
+        handTypes[handType + 1].increment();
+        betTotal.add(bet);
+        if (handType != HandEvaluator.NO_WIN)
+        {
+            returnedStakeTotal.add(bet);
+            payoutTotal.add(payout);
+        }
+    }
+
+    void recordSettle(long nanos)
+    {
+        settleLatency.record(nanos);
+    }
+
+    void recordDeal(long nanos)
+    {
+        dealLatency.record(nanos);
+    }
+
+    public long getRounds()
+    {
+        return rounds.sum();
+    }
+
+    public double getRoundsPerSecond()
+    {
+        return rounds.sum() / ((System.nanoTime() - since) / 1e9);
+    }
+
+    public long getBetTotal()
+    {
+        return betTotal.sum();
+    }
+
+    public long getPayoutTotal()
+    {
+        return payoutTotal.sum();
+    }
+
+    public long getReturnedStakeTotal()
+    {
+        return returnedStakeTotal.sum();
+    }
+
+    /**
+     * Task: Returns what went back to the players per unit bet: the payouts
+     *       plus the bets that winning rounds kept.
+     */
+    public double getReturnToPlayer()
+    {
+        long bets = betTotal.sum();
+        return bets == 0 ? 0 : (double) (payoutTotal.sum() + returnedStakeTotal.sum()) / bets;
+    }
+
+    /**
+     * Task: Returns the settled rounds of one hand type, NO_WIN included.
+     */
+    long getHandTypeCount(int handType)
+    {
+        return handTypes[handType + 1].sum();
+    }
+
+    public Map<String, Long> getHandTypeCounts()
+    {
+        Map<String, Long> counts = new LinkedHashMap<String, Long>();
+        for (int i = 0; i < handTypes.length; i++)
+            counts.put(VideoPoker.getHandTypeName(i - 1), handTypes[i].sum());
+        return counts;
+    }
+
+    /* sampled GameSession.settle() latencies: classify, pay, count and hand to the sink */
+    LatencyHistogram getSettleLatency()
+    {
+        return settleLatency;
+    }
+
+    /* sampled GameSession.deal() latencies: reset, shuffle and deal 5 cards */
+    LatencyHistogram getDealLatency()
+    {
+        return dealLatency;
+    }
+
+    public long getSettleP50Nanos()
+    {
+        return settleLatency.getPercentile(0.50);
+    }
+
+    public long getSettleP99Nanos()
+    {
+        return settleLatency.getPercentile(0.99);
+    }
+
+    public long getDealP50Nanos()
+    {
+        return dealLatency.getPercentile(0.50);
+    }
+
+    public long getDealP99Nanos()
+    {
+        return dealLatency.getPercentile(0.99);
+    }
+
+    public void reset()
+    {
+        rounds.reset();
+        betTotal.reset();
+        payoutTotal.reset();
+        returnedStakeTotal.reset();
+        for (LongAdder handType : handTypes)
+            handType.reset();
+        settleLatency.reset();
+        dealLatency.reset();
+        since = System.nanoTime();
+    }
+
+    public String toString()
+    {
+        return String.format("rounds=%d (%.0f/s) rtp=%.4f settle p50/p99=%d/%d ns deal p50/p99=%d/%d ns %s",
+                getRounds(), getRoundsPerSecond(), getReturnToPlayer(), getSettleP50Nanos(), getSettleP99Nanos(),
+                getDealP50Nanos(), getDealP99Nanos(), getHandTypeCounts());
+    }
+}
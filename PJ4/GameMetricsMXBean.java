@@ -0,0 +1,44 @@
+/*************************************************
+ File: [GameMetricsMXBean.java]
+ By: [Artsem Holdvekht]
+ Description: [JMX view of GameMetrics]
+ *************************************************/
+package PJ4;
+
+import java.util.Map;
+
+
+/** interface GameMetricsMXBean : what jconsole/VisualVM show under
+ *  PJ4:type=GameMetrics once GameMetrics.register() was called.
+ *  JMX requires this interface to be public.
+ */
+public interface GameMetricsMXBean {
+
+    long getRounds();
+
+    /* since start or the last reset() */
+    double getRoundsPerSecond();
+
+    long getBetTotal();
+
+    long getPayoutTotal();
+
+    /* bets kept by winning rounds, paid "to one" */
+    long getReturnedStakeTotal();
+
+    /* (payout total + returned stake total) / bet total */
+    double getReturnToPlayer();
+
+    /* hand type name -> settled rounds */
+    Map<String, Long> getHandTypeCounts();
+
+    long getSettleP50Nanos();
+
+    long getSettleP99Nanos();
+
+    long getDealP50Nanos();
+
+    long getDealP99Nanos();
+
+    void reset();
+}
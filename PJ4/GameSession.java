@@ -0,0 +1,238 @@
+/*************************************************
+ File: [GameSession.java]
+ By: [Artsem Holdvekht]
+ Description: [Headless VideoPoker round: bet, deal, hold, draw and settle as plain method calls]
+ *************************************************/
+package PJ4;
+
+
+/** class GameSession : one player's game without any console I/O.
+ *
+ *  A round is always played in this order:
+ *      bet(amount)  ->  deal()  ->  hold(mask)  ->  draw()  ->  settle()
+ *  hold() may be skipped (nothing held). Calling a step out of order throws
+ *  IllegalStateException.
+ *
+ *  Balance rules are the ones of VideoPoker, paid "to one" as described
+ *  in Paytable: a winning hand adds bet * multiplier to the balance and
+ *  keeps the bet, a losing hand takes the bet.
+ *
+ *  Every settled round is also handed to the RoundSink of the session
+ *  (RoundSink.NONE by default) and counted in its GameMetrics
+ *  (GameMetrics.GLOBAL by default).
+ *
+ *  A session is not thread-safe and must own its deck: give every session
+ *  its own CardDeck and play it from one thread at a time.
+ */
+class GameSession {
+
+    static final int HAND_SIZE = 5;
+
+    /* all 5 positions held */
+    static final int HOLD_ALL = (1 << HAND_SIZE) - 1;
+
+    /* round steps */
+    private static final int BETTING = 0;
+    private static final int BET_PLACED = 1;
+    private static final int DEALT = 2;
+    private static final int DRAWN = 3;
+
+    private final CardDeck deck;
+    private final Paytable paytable;
+    private RoundSink sink = RoundSink.NONE;
+    private GameMetrics metrics = GameMetrics.GLOBAL;
+
+    /* settled rounds, picks the rounds whose deal() and settle() are timed */
+    private int settled;
+
+    /* current hand, dealt and drawn in place */
+    private final Card[] hand = new Card[HAND_SIZE];
+
+    private int balance;
+    private int bet;
+    private int holdMask;
+
+    /* dealt hand packed as in HandHistory */
+    private int dealtCards;
+    private int state = BETTING;
+
+    /**
+     * Constructor: a session dealing from deck and paying multipliers[handType] * bet.
+     */
+    GameSession(CardDeck deck, int[] multipliers, int balance)
+    {
+        this(deck, new Paytable("Custom", multipliers), balance);
+    }
+
+    /**
+     * Constructor: a session dealing from deck and paying with the given paytable.
+     */
+    GameSession(CardDeck deck, Paytable paytable, int balance)
+    {
+        this.deck = deck;
+        this.paytable = paytable;
+        this.balance = balance;
+    }
+
+    /**
+     * Task: Places the bet of the next round.
+     *
+     * @return false if the bet is not positive or greater than the balance
+     */
+    public boolean bet(int amount)
+    {
+        requireState(BETTING, BET_PLACED);
+        if (amount <= 0 || amount > balance)
+        {
+            return false;
+        }
+        bet = amount;
+        state = BET_PLACED;
+        return true;
+    }
+
+    /**
+     * Task: Resets and shuffles the deck and deals a new hand.
+     *
+     * @return the current hand, the array is updated by draw()
+     */
+    public Card[] deal()
+    {
+        requireState(BET_PLACED, BET_PLACED);
+        // timed with the deal, an IntDeck shuffles while it deals
+        boolean timed = (settled & GameMetrics.SAMPLE_MASK) == 0;
+        long start = timed ? System.nanoTime() : 0;
+        deck.reset();
+        deck.shuffle();
+        if (deck.deal(hand, 0, HAND_SIZE) != HAND_SIZE)
+        {
+            throw new IllegalStateException("Not enough cards to deal a hand");
+        }
+        if (timed)
+            metrics.recordDeal(System.nanoTime() - start);
+        dealtCards = HandHistory.pack(hand);
+        holdMask = 0;
+        state = DEALT;
+        return hand;
+    }
+
+    /**
+     * Task: Selects the cards to keep, bit i of mask set = keep card i.
+     */
+    public void hold(int mask)
+    {
+        requireState(DEALT, DEALT);
+        holdMask = mask & HOLD_ALL;
+    }
+
+    /**
+     * Task: Replaces every card that is not held.
+     *
+     * @return the final hand
+     */
+    public Card[] draw()
+    {
+        requireState(DEALT, DEALT);
+        for (int i = 0; i < HAND_SIZE; i++)
+        {
+            if ((holdMask & (1 << i)) == 0 && deck.deal(hand, i, 1) != 1)
+            {
+                throw new IllegalStateException("Not enough cards to draw");
+            }
+        }
+        state = DRAWN;
+        return hand;
+    }
+
+    /**
+     * Task: Classifies the final hand, pays it and updates the balance.
+     */
+    public RoundResult settle()
+    {
+        requireState(DRAWN, DRAWN);
+        // the whole settlement is timed, a single classify() is shorter than the timer
+        boolean timed = (settled++ & GameMetrics.SAMPLE_MASK) == 0;
+        long start = timed ? System.nanoTime() : 0;
+        int finalCards = HandHistory.pack(hand);
+        int handType = BatchClassifier.classify(finalCards);
+        int payout = paytable.payout(handType, bet);
+        if (handType == HandEvaluator.NO_WIN)
+            balance -= bet;
+        else
+            balance += payout;
+        state = BETTING;
+        RoundResult result = new RoundResult(hand.clone(),
+                HandHistory.cards(dealtCards, finalCards), holdMask, handType, bet, payout, balance);
+        metrics.recordRound(handType, bet, payout);
+        sink.accept(result);
+        if (timed)
+            metrics.recordSettle(System.nanoTime() - start);
+        return result;
+    }
+
+    /**
+     * Task: Sets where settled rounds are sent, null for nowhere.
+     */
+    public void setSink(RoundSink sink)
+    {
+        this.sink = sink == null ? RoundSink.NONE : sink;
+    }
+
+    /**
+     * Task: Sets the metrics this session reports to.
+     */
+    public void setMetrics(GameMetrics metrics)
+    {
+        this.metrics = metrics;
+    }
+
+    public Paytable getPaytable()
+    {
+        return paytable;
+    }
+
+    public int getBalance()
+    {
+        return balance;
+    }
+
+    public int getBet()
+    {
+        return bet;
+    }
+
+    /* current hand, live array */
+    public Card[] getHand()
+    {
+        return hand;
+    }
+
+    private void requireState(int first, int last)
+    {
+        if (state < first || state > last)
+        {
+            throw new IllegalStateException("Round step out of order, state " + state);
+        }
+    }
+
+
+    /* Quick test: play rounds holding the dealt hand until the balance is gone */
+    public static void main(String args[])
+    {
+        int[] multipliers = {1, 2, 3, 5, 6, 9, 25, 50, 250};
+        GameSession session = new GameSession(new IntDeck(1), multipliers, 1000);
+        int rounds = 0;
+        while (session.getBalance() > 0 && rounds < 1000000)
+        {
+            session.bet(1);
+            session.deal();
+            session.hold(HOLD_ALL);
+            session.draw();
+            RoundResult result = session.settle();
+            if (rounds < 5)
+                System.out.println(result);
+            rounds++;
+        }
+        System.out.println(rounds + " rounds, balance " + session.getBalance());
+    }
+}
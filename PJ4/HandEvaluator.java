@@ -0,0 +1,199 @@
+/*************************************************
+ File: [HandEvaluator.java]
+ By: [Artsem Holdvekht]
+ Description: [Table driven evaluator that maps a 5-card hand to one of the VideoPoker hand types
+               without sorting, copying or walking the hand.]
+ *************************************************/
+package PJ4;
+
+
+/** class HandEvaluator : classifies 5-card hands for VideoPoker.
+ *
+ *  The returned category is the index into VideoPoker goodHandTypes/multipliers,
+ *  or NO_WIN (-1) when the hand does not pay.
+ *
+ *  How it works:
+ *    - every rank owns one bit of a 13-bit mask (A = bit 0 ... K = bit 12).
+ *      Five distinct ranks are looked up in STRAIGHTS[] or FLUSHES[].
+ *    - every rank also owns one 4-bit counter (nibble) of a long. Adding the
+ *      nibbles of the five cards gives the rank histogram of the hand, the
+ *      number of quads/trips/pairs is read from it with a few bit operations
+ *      and looked up in PATTERNS[].
+ *    - flush is the AND of the suit bits of the five cards.
+ */
+final class HandEvaluator {
+
+    /* hand types, same order as VideoPoker goodHandTypes[] */
+    static final int NO_WIN          = -1;
+    static final int ROYAL_PAIR      = 0;
+    static final int TWO_PAIRS       = 1;
+    static final int THREE_OF_A_KIND = 2;
+    static final int STRAIGHT        = 3;
+    static final int FLUSH           = 4;
+    static final int FULL_HOUSE      = 5;
+    static final int FOUR_OF_A_KIND  = 6;
+    static final int STRAIGHT_FLUSH  = 7;
+    static final int ROYAL_FLUSH     = 8;
+
+    /* 10 J Q K A */
+    static final int ROYAL_RANKS = 0x1E01;
+
+    /* lowest bit of every rank nibble */
+    private static final long NIBBLE_ONES = 0x1111111111111L;
+
+    /* lowest bit of the J, Q, K and A nibbles */
+    private static final long HIGH_ONES = (1L << 40) | (1L << 44) | (1L << 48) | 1L;
+
+    /* per rank (1-13) and per suit (1-4) precomputed bits */
+    static final int[] RANK_BIT = new int[14];
+    static final long[] RANK_NIBBLE = new long[14];
+    static final int[] SUIT_BIT = new int[5];
+
+    /* the same bits indexed by card code (see class Cards) */
+    static final int[] CODE_RANK_BIT = new int[Cards.DECK_SIZE];
+    static final long[] CODE_NIBBLE = new long[Cards.DECK_SIZE];
+    static final int[] CODE_SUIT_BIT = new int[Cards.DECK_SIZE];
+
+    /* hand type of 5 distinct ranks, indexed by rank mask */
+    private static final byte[] STRAIGHTS = new byte[1 << 13];
+    private static final byte[] FLUSHES = new byte[1 << 13];
+
+    /* hand type of paired hands, indexed by patternIndex() */
+    private static final byte[] PATTERNS = new byte[2 * 2 * 3 * 3];
+
+    static
+    {
+        for (int rank = 1; rank <= 13; rank++)
+        {
+            RANK_BIT[rank] = 1 << (rank - 1);
+            RANK_NIBBLE[rank] = 1L << (4 * (rank - 1));
+        }
+        for (int suit = 1; suit <= 4; suit++)
+        {
+            SUIT_BIT[suit] = 1 << (suit - 1);
+        }
+        for (int suit = 1; suit <= 4; suit++)
+        {
+            for (int rank = 1; rank <= 13; rank++)
+            {
+                int code = Cards.code(suit, rank);
+                CODE_RANK_BIT[code] = RANK_BIT[rank];
+                CODE_NIBBLE[code] = RANK_NIBBLE[rank];
+                CODE_SUIT_BIT[code] = SUIT_BIT[suit];
+            }
+        }
+
+        for (int mask = 0; mask < (1 << 13); mask++)
+        {
+            if (Integer.bitCount(mask) != 5)
+            {
+                STRAIGHTS[mask] = NO_WIN;
+                FLUSHES[mask] = FLUSH;
+                continue;
+            }
+            // five consecutive bits, or 10 J Q K A
+            boolean straight = (mask == ROYAL_RANKS) || (mask == (mask & -mask) * 0x1F);
+            STRAIGHTS[mask] = (byte) (straight ? STRAIGHT : NO_WIN);
+            if (mask == ROYAL_RANKS)
+                FLUSHES[mask] = ROYAL_FLUSH;
+            else
+                FLUSHES[mask] = (byte) (straight ? STRAIGHT_FLUSH : FLUSH);
+        }
+
+        for (int quads = 0; quads < 2; quads++)
+        {
+            for (int trips = 0; trips < 2; trips++)
+            {
+                for (int pairs = 0; pairs < 3; pairs++)
+                {
+                    for (int highPairs = 0; highPairs < 3; highPairs++)
+                    {
+                        int type;
+                        if (quads > 0)
+                            type = FOUR_OF_A_KIND;
+                        else if (trips > 0 && pairs > 0)
+                            type = FULL_HOUSE;
+                        else if (trips > 0)
+                            type = THREE_OF_A_KIND;
+                        else if (pairs == 2)
+                            type = TWO_PAIRS;
+                        else if (pairs == 1 && highPairs > 0)
+                            type = ROYAL_PAIR;
+                        else
+                            type = NO_WIN;
+                        PATTERNS[patternIndex(quads, trips, pairs, highPairs)] = (byte) type;
+                    }
+                }
+            }
+        }
+    }
+
+    private HandEvaluator()
+    {
+    }
+
+    private static int patternIndex(int quads, int trips, int pairs, int highPairs)
+    {
+        return ((quads * 2 + trips) * 3 + pairs) * 3 + highPairs;
+    }
+
+    /**
+     * Task: Returns the hand type of the given 5 cards (order does not matter).
+     *
+     * @return index into goodHandTypes[], or NO_WIN
+     */
+    static int evaluate(Card c0, Card c1, Card c2, Card c3, Card c4)
+    {
+        int r0 = c0.getRank(), r1 = c1.getRank(), r2 = c2.getRank(), r3 = c3.getRank(), r4 = c4.getRank();
+        int ranks = RANK_BIT[r0] | RANK_BIT[r1] | RANK_BIT[r2] | RANK_BIT[r3] | RANK_BIT[r4];
+        int suits = SUIT_BIT[c0.getSuit()] & SUIT_BIT[c1.getSuit()] & SUIT_BIT[c2.getSuit()]
+                  & SUIT_BIT[c3.getSuit()] & SUIT_BIT[c4.getSuit()];
+        long histogram = RANK_NIBBLE[r0] + RANK_NIBBLE[r1] + RANK_NIBBLE[r2] + RANK_NIBBLE[r3] + RANK_NIBBLE[r4];
+        return evaluate(ranks, suits, histogram);
+    }
+
+    /**
+     * Task: Returns the hand type of the given 5 card codes (order does not matter).
+     *
+     * @return index into goodHandTypes[], or NO_WIN
+     */
+    static int evaluateCodes(int c0, int c1, int c2, int c3, int c4)
+    {
+        int ranks = CODE_RANK_BIT[c0] | CODE_RANK_BIT[c1] | CODE_RANK_BIT[c2] | CODE_RANK_BIT[c3] | CODE_RANK_BIT[c4];
+        int suits = CODE_SUIT_BIT[c0] & CODE_SUIT_BIT[c1] & CODE_SUIT_BIT[c2] & CODE_SUIT_BIT[c3] & CODE_SUIT_BIT[c4];
+        long histogram = CODE_NIBBLE[c0] + CODE_NIBBLE[c1] + CODE_NIBBLE[c2] + CODE_NIBBLE[c3] + CODE_NIBBLE[c4];
+        return evaluate(ranks, suits, histogram);
+    }
+
+    /**
+     * Task: Returns the hand type from the precomputed parts of a 5-card hand.
+     *
+     * @param ranks     OR of RANK_BIT[] of the cards
+     * @param suits     AND of SUIT_BIT[] of the cards (non zero means flush)
+     * @param histogram sum of RANK_NIBBLE[] of the cards
+     */
+    static int evaluate(int ranks, int suits, long histogram)
+    {
+        if (Integer.bitCount(ranks) == 5)
+        {
+            return suits != 0 ? FLUSHES[ranks] : STRAIGHTS[ranks];
+        }
+
+        // counts are 0-4, so: 4 = 100b, 3 = 011b, 2 = 010b
+        long bit0 = histogram & NIBBLE_ONES;
+        long bit1 = (histogram >>> 1) & NIBBLE_ONES;
+        long quads = (histogram >>> 2) & NIBBLE_ONES;
+        long trips = bit0 & bit1;
+        long pairs = bit1 & ~bit0;
+
+        int type = PATTERNS[patternIndex(Long.bitCount(quads), Long.bitCount(trips),
+                Long.bitCount(pairs), Long.bitCount(pairs & HIGH_ONES))];
+
+        // only possible with more than one deck: a flush with paired ranks
+        if (suits != 0 && type < FLUSH)
+        {
+            type = FLUSH;
+        }
+        return type;
+    }
+}
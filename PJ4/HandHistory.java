@@ -0,0 +1,226 @@
+/*************************************************
+ File: [HandHistory.java]
+ By: [Artsem Holdvekht]
+ Description: [Compact binary hand history: card packing, file format and zero-copy replay]
+ *************************************************/
+package PJ4;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.SplittableRandom;
+
+
+/** class HandHistory : one record per played round.
+ *
+ *  Cards are 6 bit card codes (see class Cards), a 5-card hand packs into
+ *  30 bits, card i at bits 6*i. The dealt and the final hand of a round
+ *  share one long:
+ *
+ *      bits  0-29  dealt hand       bits 30-59  final hand
+ *
+ *  File: a 16 byte header (MAGIC, VERSION, RECORD_SIZE, 0), then records
+ *
+ *      long cards, int bet, int payout, int balance, int flags    (24 bytes)
+ *
+ *  flags holds the hold mask in bits 0-4 and the paid hand type + 1 in
+ *  bits 8-11. Everything is big endian.
+ *
+ *  replay() maps the file and hands the fields of every record to a
+ *  Visitor as primitives, no Card or other object is created per record.
+ *
+ *  java PJ4.HandHistory [file] [rounds]   write and replay test
+ */
+final class HandHistory {
+
+    static final int MAGIC = 0x504A3448;    // "PJ4H"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    static final int RECORD_SIZE = 24;
+
+    static final int CARD_BITS = 6;
+    static final int CARD_MASK = (1 << CARD_BITS) - 1;
+    static final int HAND_BITS = GameSession.HAND_SIZE * CARD_BITS;
+    static final int HAND_MASK = (1 << HAND_BITS) - 1;
+
+    /* records per mapping, a multiple of RECORD_SIZE below 2 GB */
+    private static final long CHUNK_RECORDS = Integer.MAX_VALUE / RECORD_SIZE;
+
+    /** Receives the records of a replay */
+    interface Visitor
+    {
+        /**
+         * @param cards    dealt and final hand, see card()
+         * @param flags    hold mask and hand type, see holdMask() and handType()
+         */
+        void round(long cards, int bet, int payout, int balance, int flags);
+    }
+
+    private HandHistory()
+    {
+    }
+
+    /**
+     * Task: Packs 5 cards into 30 bits, card i at bits 6*i.
+     */
+    static int pack(Card[] hand)
+    {
+        int packed = 0;
+        for (int i = 0; i < GameSession.HAND_SIZE; i++)
+            packed |= Cards.code(hand[i]) << (CARD_BITS * i);
+        return packed;
+    }
+
+    /**
+     * Task: Packs 5 card codes into 30 bits, card i at bits 6*i.
+     */
+    static int pack(int[] codes, int offset)
+    {
+        int packed = 0;
+        for (int i = 0; i < GameSession.HAND_SIZE; i++)
+            packed |= codes[offset + i] << (CARD_BITS * i);
+        return packed;
+    }
+
+    /**
+     * Task: Returns card i (0-4) of a packed hand.
+     */
+    static int card(int hand, int index)
+    {
+        return (hand >>> (CARD_BITS * index)) & CARD_MASK;
+    }
+
+    static long cards(int dealt, int last)
+    {
+        return ((long) last << HAND_BITS) | dealt;
+    }
+
+    static int dealtHand(long cards)
+    {
+        return (int) cards & HAND_MASK;
+    }
+
+    static int finalHand(long cards)
+    {
+        return (int) (cards >>> HAND_BITS) & HAND_MASK;
+    }
+
+    static int flags(int holdMask, int handType)
+    {
+        return holdMask | ((handType + 1) << 8);
+    }
+
+    static int holdMask(int flags)
+    {
+        return flags & GameSession.HOLD_ALL;
+    }
+
+    static int handType(int flags)
+    {
+        return ((flags >>> 8) & 0xF) - 1;
+    }
+
+    /**
+     * Task: Writes the file header.
+     */
+    static void writeHeader(FileChannel channel) throws IOException
+    {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putInt(RECORD_SIZE).putInt(0).flip();
+        channel.write(header, 0);
+    }
+
+    /**
+     * Task: Returns the number of records of a hand history file.
+     *
+     * @throws IOException if the file is not a hand history of this version
+     */
+    static long records(FileChannel channel) throws IOException
+    {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        channel.read(header, 0);
+        if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION || header.getInt(8) != RECORD_SIZE)
+            throw new IOException("Not a version " + VERSION + " hand history");
+        return (channel.size() - HEADER_SIZE) / RECORD_SIZE;
+    }
+
+    /**
+     * Task: Maps records [first, first + count) read-only, count must fit one mapping.
+     */
+    static MappedByteBuffer map(FileChannel channel, long first, long count) throws IOException
+    {
+        return channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + first * RECORD_SIZE, count * RECORD_SIZE);
+    }
+
+    /**
+     * Task: Hands the records of one mapping to the visitor.
+     */
+    static void replay(ByteBuffer records, Visitor visitor)
+    {
+        int end = records.limit() - RECORD_SIZE;
+        for (int offset = records.position(); offset <= end; offset += RECORD_SIZE)
+        {
+            visitor.round(records.getLong(offset), records.getInt(offset + 8), records.getInt(offset + 12),
+                    records.getInt(offset + 16), records.getInt(offset + 20));
+        }
+    }
+
+    /**
+     * Task: Replays every record of a file.
+     *
+     * @return the number of records
+     */
+    static long replay(Path file, Visitor visitor) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            long records = records(channel);
+            for (long first = 0; first < records; first += CHUNK_RECORDS)
+                replay(map(channel, first, Math.min(CHUNK_RECORDS, records - first)), visitor);
+            return records;
+        }
+    }
+
+
+    /* Test: record rounds of a session, replay them and compare the totals */
+    public static void main(String args[]) throws IOException
+    {
+        Path file = Paths.get(args.length > 0 ? args[0] : "hands.bin");
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 2_000_000;
+
+        GameSession session = new GameSession(new IntDeck(1, new SplittableRandom(42)), VideoPoker.getMultipliers(), Integer.MAX_VALUE / 2);
+        long paid = 0;
+        long start = System.nanoTime();
+        try (HandHistoryWriter writer = new HandHistoryWriter(file))
+        {
+            session.setSink(writer);
+            int[] codes = new int[GameSession.HAND_SIZE];
+            for (int i = 0; i < rounds; i++)
+            {
+                session.bet(1);
+                Card[] hand = session.deal();
+                for (int c = 0; c < codes.length; c++)
+                    codes[c] = Cards.code(hand[c]);
+                session.hold(HoldStrategy.SIMPLE.holdMask(codes));
+                session.draw();
+                paid += session.settle().getPayout();
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Wrote %d rounds in %.2f s, %d bytes%n", rounds, seconds, Files.size(file));
+
+        final long[] totals = new long[2];
+        start = System.nanoTime();
+        long records = replay(file, (cards, bet, payout, balance, flags) -> {
+            totals[0] += payout;
+            // first card of the final hand, to touch the cards too
+            totals[1] += card(finalHand(cards), 0);
+        });
+        seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Replayed %d rounds in %.3f s, %.0f rounds/s, payouts match: %b%n",
+                records, seconds, records / seconds, totals[0] == paid);
+        Files.deleteIfExists(file);
+    }
+}
@@ -0,0 +1,80 @@
+/*************************************************
+ File: [HandHistoryWriter.java]
+ By: [Artsem Holdvekht]
+ Description: [RoundSink that appends rounds to a HandHistory file]
+ *************************************************/
+package PJ4;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+
+
+/** class HandHistoryWriter : appends one HandHistory record per round to
+ *  a direct buffer and writes the buffer to the file when it is full,
+ *  on flush() and on close(). An existing file is replaced.
+ *
+ *  Not thread-safe: share it between threads through an AsyncRoundSink.
+ */
+class HandHistoryWriter implements RoundSink {
+
+    /* records per write */
+    private static final int BUFFER_RECORDS = 1 << 14;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_RECORDS * HandHistory.RECORD_SIZE);
+
+    HandHistoryWriter(Path file) throws IOException
+    {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        HandHistory.writeHeader(channel);
+        channel.position(HandHistory.HEADER_SIZE);
+    }
+
+    public void accept(RoundResult result)
+    {
+        write(result.getCards(), result.getBet(), result.getPayout(), result.getBalance(),
+                HandHistory.flags(result.getHoldMask(), result.getHandType()));
+    }
+
+    /**
+     * Task: Appends one record, see HandHistory for the fields.
+     */
+    void write(long cards, int bet, int payout, int balance, int flags)
+    {
+        if (!buffer.hasRemaining())
+            flush();
+        buffer.putLong(cards).putInt(bet).putInt(payout).putInt(balance).putInt(flags);
+    }
+
+    public void flush()
+    {
+        buffer.flip();
+        try
+        {
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+        buffer.clear();
+    }
+
+    public void close()
+    {
+        flush();
+        try
+        {
+            channel.close();
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
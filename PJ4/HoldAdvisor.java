@@ -0,0 +1,172 @@
+/*************************************************
+ File: [HoldAdvisor.java]
+ By: [Artsem Holdvekht]
+ Description: [Expected value of all 32 holds of a dealt hand and the best hold, for hints and optimal play]
+ *************************************************/
+package PJ4;
+
+import java.util.List;
+
+
+/** class HoldAdvisor : answers "which cards should I keep?" for a payout table.
+ *
+ *  The draws of all 32 holds are counted with DrawTable (no draw is dealt
+ *  or evaluated), so an answer costs a few microseconds once the table is
+ *  built. Expected values are returns per unit bet under the settlement of
+ *  GameSession (see Paytable): a winning final hand counts multiplier + 1,
+ *  a losing one 0.
+ *
+ *  Hold masks use the positions of the given hand: bit i set = keep card i.
+ */
+final class HoldAdvisor {
+
+    private final int[] multipliers;
+    private final DrawTable table;
+
+    HoldAdvisor(int[] multipliers)
+    {
+        this.multipliers = multipliers.clone();
+        this.table = DrawTable.getInstance();
+    }
+
+    /**
+     * Task: Returns the expected value of every hold of a 5-card hand.
+     */
+    Advice advise(List<Card> hand)
+    {
+        int[] codes = new int[GameSession.HAND_SIZE];
+        for (int i = 0; i < codes.length; i++)
+            codes[i] = Cards.code(hand.get(i));
+        return advise(codes);
+    }
+
+    /**
+     * Task: Returns the expected value of every hold of 5 card codes.
+     */
+    Advice advise(int[] hand)
+    {
+        // sort the codes, position[i] = hand position of sorted card i
+        int[] sorted = new int[GameSession.HAND_SIZE];
+        int[] position = new int[GameSession.HAND_SIZE];
+        for (int i = 0; i < GameSession.HAND_SIZE; i++)
+        {
+            int j = i;
+            while (j > 0 && sorted[j - 1] > hand[i])
+            {
+                sorted[j] = sorted[j - 1];
+                position[j] = position[j - 1];
+                j--;
+            }
+            sorted[j] = hand[i];
+            position[j] = i;
+        }
+
+        int[] draws = new int[DrawTable.HOLDS * DrawTable.TYPES];
+        table.drawCounts(sorted, new int[DrawTable.HOLDS], draws);
+
+        double[] values = new double[DrawTable.HOLDS];
+        int best = 0;
+        for (int sortedHold = 0; sortedHold < DrawTable.HOLDS; sortedHold++)
+        {
+            int hold = 0;
+            for (int i = 0; i < GameSession.HAND_SIZE; i++)
+            {
+                if ((sortedHold & (1 << i)) != 0)
+                    hold |= 1 << position[i];
+            }
+            values[hold] = (double) DrawTable.totalReturn(draws, sortedHold, multipliers) / DrawTable.drawsOf(sortedHold);
+        }
+        for (int hold = 1; hold < DrawTable.HOLDS; hold++)
+        {
+            if (values[hold] > values[best])
+                best = hold;
+        }
+        return new Advice(values, best);
+    }
+
+    /**
+     * Task: Returns a hold strategy that always plays the best hold.
+     */
+    HoldStrategy strategy()
+    {
+        return hand -> advise(hand).getBestHold();
+    }
+
+    /** class Advice : expected values of the 32 holds of one hand */
+    static final class Advice
+    {
+        private final double[] values;
+        private final int bestHold;
+
+        Advice(double[] values, int bestHold)
+        {
+            this.values = values;
+            this.bestHold = bestHold;
+        }
+
+        /* expected return per unit bet of a hold, bit i set = keep card i */
+        double getExpectedValue(int holdMask)
+        {
+            return values[holdMask];
+        }
+
+        int getBestHold()
+        {
+            return bestHold;
+        }
+
+        double getBestValue()
+        {
+            return values[bestHold];
+        }
+
+        /* positions (1-5) of the best hold, as typed at the keep prompt */
+        String getBestPositions()
+        {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < GameSession.HAND_SIZE; i++)
+            {
+                if ((bestHold & (1 << i)) != 0)
+                    sb.append(sb.length() > 0 ? " " : "").append(i + 1);
+            }
+            return sb.toString();
+        }
+
+        public String toString()
+        {
+            return "keep [" + getBestPositions() + "] expected value " + String.format("%.4f", getBestValue());
+        }
+    }
+
+
+    /* Quick test: advice for a few hands and the time per answer */
+    public static void main(String args[])
+    {
+        HoldAdvisor advisor = new HoldAdvisor(VideoPoker.getMultipliers());
+        int[][] hands = {
+                {Cards.code(4, 1), Cards.code(4, 13), Cards.code(4, 12), Cards.code(4, 11), Cards.code(1, 9)},
+                {Cards.code(1, 2), Cards.code(2, 2), Cards.code(3, 7), Cards.code(4, 9), Cards.code(1, 12)},
+                {Cards.code(1, 3), Cards.code(2, 5), Cards.code(3, 7), Cards.code(4, 9), Cards.code(1, 12)},
+        };
+        for (int[] hand : hands)
+        {
+            System.out.print("[");
+            for (int i = 0; i < hand.length; i++)
+                System.out.print((i > 0 ? ", " : "") + Cards.byCode(hand[i]));
+            System.out.println("] " + advisor.advise(hand));
+        }
+
+        int rounds = 200_000;
+        IntDeck deck = new IntDeck(1);
+        int[] hand = new int[GameSession.HAND_SIZE];
+        long sum = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++)
+        {
+            deck.reset();
+            deck.deal(hand, 0, GameSession.HAND_SIZE);
+            sum += advisor.advise(hand).getBestHold();
+        }
+        System.out.printf("%.2f us per advice (%d)%n", (System.nanoTime() - start) / 1e3 / rounds, sum % 7);
+    }
+}
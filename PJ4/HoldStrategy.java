@@ -0,0 +1,48 @@
+/*************************************************
+ File: [HoldStrategy.java]
+ By: [Artsem Holdvekht]
+ Description: [Decides which cards of a dealt hand are held, used by the simulators]
+ *************************************************/
+package PJ4;
+
+
+/** interface HoldStrategy : picks the cards to keep from a dealt hand.
+ *  hand holds 5 card codes (see class Cards), the result is a hold mask,
+ *  bit i set = keep hand[i]. Implementations must not keep state between
+ *  calls, the simulators call them from many threads.
+ */
+interface HoldStrategy {
+
+    int holdMask(int[] hand);
+
+    /** Draw five new cards every round */
+    HoldStrategy HOLD_NOTHING = hand -> 0;
+
+    /** Keep the dealt hand */
+    HoldStrategy HOLD_ALL = hand -> GameSession.HOLD_ALL;
+
+    /**
+     * Simple player: keep a straight or better, otherwise keep every paired
+     * rank, otherwise keep the J, Q, K and A cards.
+     */
+    HoldStrategy SIMPLE = hand -> {
+        int handType = HandEvaluator.evaluateCodes(hand[0], hand[1], hand[2], hand[3], hand[4]);
+        if (handType >= HandEvaluator.STRAIGHT)
+            return GameSession.HOLD_ALL;
+
+        int paired = 0;
+        int high = 0;
+        for (int i = 0; i < GameSession.HAND_SIZE; i++)
+        {
+            int rank = Cards.rank(hand[i]);
+            for (int j = 0; j < GameSession.HAND_SIZE; j++)
+            {
+                if (i != j && Cards.rank(hand[j]) == rank)
+                    paired |= 1 << i;
+            }
+            if (rank == 1 || rank >= 11)
+                high |= 1 << i;
+        }
+        return paired != 0 ? paired : high;
+    };
+}
@@ -0,0 +1,218 @@
+/*************************************************
+ File: [IntDeck.java]
+ By: [Artsem Holdvekht]
+ Description: [Implements a deck of n*52 card codes that shuffles lazily while dealing]
+ *************************************************/
+package PJ4;
+
+import java.util.*;
+import java.util.random.RandomGenerator;
+
+
+/** class IntDeck represents : n decks of 52 playing cards stored as card codes
+ *  (see class Cards) in a primitive array.
+ *
+ *  The deck is never shuffled as a whole. deal() picks every card at random
+ *  from the remaining cards and swaps it to the end of the remaining part
+ *  (Fisher-Yates, one step per dealt card). A draw poker round therefore costs
+ *  O(cards dealt) instead of O(deck size).
+ *
+ *  codes[0 .. remaining-1]  cards left in the deck
+ *  codes[remaining .. end]  dealt cards, last dealt card first
+ *
+ *  A deck may also hold jokers (Cards.JOKER) for the wild card variants,
+ *  such a deck deals card codes only.
+ */
+class IntDeck implements CardDeck {
+
+    /* all n*52 card codes, always a permutation of the full decks */
+    private final int[] codes;
+
+    /* number of cards not dealt yet */
+    private int remaining;
+
+    /* number of 52-card decks in this object */
+    private final int numberDecks;
+
+    /* number of jokers added to the decks */
+    private final int jokers;
+
+    /* random source of dealCode(), owned by this deck */
+    private final RandomGenerator random;
+
+    /**
+     * Constructor: Creates n 52-card decks of card codes.
+     */
+    public IntDeck(int n)
+    {
+        this(n, new SplittableRandom());
+    }
+
+    /**
+     * Constructor: Creates n 52-card decks dealt with the given random source.
+     * Note: a seeded generator reproduces exactly the same deals.
+     */
+    public IntDeck(int n, RandomGenerator random)
+    {
+        this(n, 0, random);
+    }
+
+    /**
+     * Constructor: Creates n 52-card decks plus the given number of jokers.
+     */
+    public IntDeck(int n, int jokers, RandomGenerator random)
+    {
+        this.random = random;
+        numberDecks = n;
+        this.jokers = jokers;
+        codes = new int[n * Cards.DECK_SIZE + jokers];
+        for (int i = 0; i < codes.length; i++)
+        {
+            codes[i] = i < n * Cards.DECK_SIZE ? i % Cards.DECK_SIZE : Cards.JOKER;
+        }
+        remaining = codes.length;
+    }
+
+    /**
+     * Task: Nothing to do, every card is chosen at random when it is dealt.
+     */
+    public void shuffle()
+    {
+    }
+
+    /**
+     * Task: Deals one random card code from the remaining cards.
+     * Note: caller has to check remain() > 0
+     */
+    public int dealCode()
+    {
+        int pick = random.nextInt(remaining);
+        int last = --remaining;
+        int code = codes[pick];
+        codes[pick] = codes[last];
+        codes[last] = code;
+        return code;
+    }
+
+    /**
+     * Task: Deals cards from the deal deck.
+     *
+     * @param numberCards number of cards to deal
+     * @return a list containing cards that were dealt
+     * @throw PlayingCardException if numberCards > number of remaining cards
+     */
+    public List<Card> deal(int numberCards) throws PlayingCardException
+    {
+        if (numberCards > remaining)
+        {
+            throw new PlayingCardException("Cards left in the deck- " + remaining + " less than the number of cards being dealt- " + numberCards);
+        }
+        Card[] dealtCards = new Card[numberCards];
+        deal(dealtCards, 0, numberCards);
+        return new ArrayList<Card>(Arrays.asList(dealtCards));
+    }
+
+    /**
+     * Task: Deals cards into a caller supplied array.
+     *
+     * @param hand        array receiving the cards
+     * @param offset      index of the first card in hand
+     * @param numberCards number of cards to deal
+     * @return number of cards dealt, less than numberCards if the deck ran out
+     * @throw IllegalStateException if the deck holds jokers
+     */
+    public int deal(Card[] hand, int offset, int numberCards)
+    {
+        if (jokers > 0)
+        {
+            throw new IllegalStateException("A deck with jokers deals card codes only");
+        }
+        int count = Math.min(numberCards, remaining);
+        for (int i = 0; i < count; i++)
+        {
+            hand[offset + i] = Cards.byCode(dealCode());
+        }
+        return count;
+    }
+
+    /**
+     * Task: Deals card codes into a caller supplied array.
+     *
+     * @param hand        array receiving the card codes
+     * @param offset      index of the first card in hand
+     * @param numberCards number of cards to deal
+     * @return number of cards dealt, less than numberCards if the deck ran out
+     */
+    public int deal(int[] hand, int offset, int numberCards)
+    {
+        int count = Math.min(numberCards, remaining);
+        for (int i = 0; i < count; i++)
+        {
+            hand[offset + i] = dealCode();
+        }
+        return count;
+    }
+
+    /**
+     * Task: Puts all dealt cards back, O(1) since codes[] stays a permutation.
+     */
+    public void reset()
+    {
+        remaining = codes.length;
+    }
+
+    /**
+     * Task: Return number of remaining cards in deal deck.
+     */
+    public int remain()
+    {
+        return remaining;
+    }
+
+    /**
+     * Task: Return number of 52-card decks.
+     */
+    public int numberDecks()
+    {
+        return numberDecks;
+    }
+
+    /**
+     * Task: Returns a string representing cards in the deal deck
+     */
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < remaining; i++)
+        {
+            if (i > 0)
+                sb.append(", ");
+            sb.append(Cards.name(codes[i]));
+        }
+        return sb.append(']').toString();
+    }
+
+
+    /* Quick test: deal 30 cards 4 times from 2 decks, expect exception last time */
+    public static void main(String args[])
+    {
+        IntDeck deck = new IntDeck(2);
+        for (int j = 0; j < 2; j++)
+        {
+            System.out.println("Loop # " + j + ", " + deck.remain() + " cards");
+            for (int i = 0; i < 4; i++)
+            {
+                try
+                {
+                    System.out.println("Hand " + i + ": " + deck.deal(30));
+                    System.out.println("Remain:" + deck.remain() + " cards");
+                }
+                catch (PlayingCardException e)
+                {
+                    System.out.println("*** In catch block:PlayingCardException:Error Msg: " + e.getMessage());
+                }
+            }
+            deck.reset();
+        }
+    }
+}
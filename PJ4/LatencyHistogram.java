@@ -0,0 +1,122 @@
+/*************************************************
+ File: [LatencyHistogram.java]
+ By: [Artsem Holdvekht]
+ Description: [Low overhead concurrent histogram of nanosecond latencies]
+ *************************************************/
+package PJ4;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+/** class LatencyHistogram : counts latencies in log-linear buckets.
+ *
+ *  Every power of two is split in SUB_BUCKETS equal buckets, so a recorded
+ *  value is off by at most 1/SUB_BUCKETS (12.5%). record() is one
+ *  numberOfLeadingZeros and one atomic add, safe from any thread.
+ */
+final class LatencyHistogram {
+
+    /* buckets per power of two */
+    private static final int SUB_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    /* values 0 - 2^63 */
+    private static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS + SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    /**
+     * Task: Counts one latency.
+     */
+    void record(long nanos)
+    {
+        counts.incrementAndGet(bucketOf(Math.max(0, nanos)));
+    }
+
+    private static int bucketOf(long value)
+    {
+        if (value < SUB_BUCKETS)
+            return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return (exponent + 1) * SUB_BUCKETS + (int) ((value >>> exponent) - SUB_BUCKETS);
+    }
+
+    /* highest value counted in a bucket */
+    private static long upperBoundOf(int bucket)
+    {
+        if (bucket < SUB_BUCKETS)
+            return bucket;
+        int exponent = bucket / SUB_BUCKETS - 1;
+        long sub = bucket % SUB_BUCKETS + SUB_BUCKETS;
+        return ((sub + 1) << exponent) - 1;
+    }
+
+    /**
+     * Task: Returns the number of recorded values.
+     */
+    long getCount()
+    {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++)
+            count += counts.get(i);
+        return count;
+    }
+
+    /**
+     * Task: Returns the value below which the given fraction (0-1) of the values are.
+     */
+    long getPercentile(double fraction)
+    {
+        long total = getCount();
+        if (total == 0)
+            return 0;
+        long rank = (long) Math.ceil(fraction * total);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++)
+        {
+            seen += counts.get(i);
+            if (seen >= rank)
+                return upperBoundOf(i);
+        }
+        return upperBoundOf(BUCKETS - 1);
+    }
+
+    /**
+     * Task: Returns the recorded counts, bucket upper bound -> count, for non empty buckets.
+     */
+    long[][] getBuckets()
+    {
+        int used = 0;
+        for (int i = 0; i < BUCKETS; i++)
+            if (counts.get(i) != 0)
+                used++;
+        long[][] buckets = new long[used][];
+        int next = 0;
+        for (int i = 0; i < BUCKETS && next < used; i++)
+        {
+            long count = counts.get(i);
+            if (count != 0)
+                buckets[next++] = new long[] {upperBoundOf(i), count};
+        }
+        return buckets;
+    }
+
+    /**
+     * Task: Adds the counts of other to this histogram.
+     */
+    void add(LatencyHistogram other)
+    {
+        for (int i = 0; i < BUCKETS; i++)
+        {
+            long count = other.counts.get(i);
+            if (count != 0)
+                counts.addAndGet(i, count);
+        }
+    }
+
+    void reset()
+    {
+        for (int i = 0; i < BUCKETS; i++)
+            counts.set(i, 0);
+    }
+}
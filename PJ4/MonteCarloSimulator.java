@@ -0,0 +1,227 @@
+/*************************************************
+ File: [MonteCarloSimulator.java]
+ By: [Artsem Holdvekht]
+ Description: [Parallel Monte Carlo estimate of the return to player of a VideoPoker payout table]
+ *************************************************/
+package PJ4;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+
+/** class MonteCarloSimulator : plays rounds on all cores with a fork/join pool.
+ *
+ *  Rounds are split in half until a task holds at most LEAF_ROUNDS rounds.
+ *  Every task splits its own SplittableRandom for the half it forks, so the
+ *  workers use independent random streams and a seed reproduces the run.
+ *  A leaf deals from its own IntDeck with card codes only and counts final
+ *  hand types, nothing is shared between workers until the counts are added.
+ *
+ *  Return of a round = Paytable.returnOf() of the final hand, what
+ *  GameSession gives back per unit bet (multiplier + 1 for a win, 0 for
+ *  NO_WIN), so RTP = mean return per unit bet, the figure GameMetrics
+ *  reports for played rounds.
+ *
+ *  java PJ4.MonteCarloSimulator [rounds] [seed]
+ */
+class MonteCarloSimulator {
+
+    /* rounds played by one fork/join leaf */
+    private static final long LEAF_ROUNDS = 1L << 18;
+
+    /* final hands per BatchClassifier call */
+    private static final int BATCH = 1024;
+
+    /* 95% normal quantile for the confidence intervals */
+    private static final double Z95 = 1.959964;
+
+    private final int[] multipliers;
+    private final HoldStrategy strategy;
+    private final ForkJoinPool pool;
+
+    MonteCarloSimulator(int[] multipliers, HoldStrategy strategy, ForkJoinPool pool)
+    {
+        this.multipliers = multipliers.clone();
+        this.strategy = strategy;
+        this.pool = pool;
+    }
+
+    MonteCarloSimulator(int[] multipliers, HoldStrategy strategy)
+    {
+        this(multipliers, strategy, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Task: Plays the given number of rounds and returns the statistics.
+     */
+    Report run(long rounds, long seed)
+    {
+        long start = System.nanoTime();
+        long[] counts = pool.invoke(new Rounds(rounds, new SplittableRandom(seed)));
+        return new Report(counts, multipliers, System.nanoTime() - start);
+    }
+
+    /** Plays a number of rounds, returns counts indexed by handType + 1 */
+    private final class Rounds extends RecursiveTask<long[]>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final long rounds;
+        private final SplittableRandom random;
+
+        Rounds(long rounds, SplittableRandom random)
+        {
+            this.rounds = rounds;
+            this.random = random;
+        }
+
+        protected long[] compute()
+        {
+            if (rounds <= LEAF_ROUNDS)
+            {
+                return play();
+            }
+            long half = rounds / 2;
+            Rounds right = new Rounds(rounds - half, random.split());
+            right.fork();
+            long[] counts = new Rounds(half, random).compute();
+            long[] other = right.join();
+            for (int i = 0; i < counts.length; i++)
+                counts[i] += other[i];
+            return counts;
+        }
+
+        /* final hands are packed and classified BATCH at a time */
+        private long[] play()
+        {
+            long[] counts = new long[HandEvaluator.ROYAL_FLUSH + 2];
+            IntDeck deck = new IntDeck(1, random);
+            int[] hand = new int[GameSession.HAND_SIZE];
+            int[] finals = new int[BATCH];
+            int[] types = new int[BATCH];
+            int batched = 0;
+            for (long round = 0; round < rounds; round++)
+            {
+                deck.reset();
+                deck.deal(hand, 0, GameSession.HAND_SIZE);
+                int holdMask = strategy.holdMask(hand);
+                for (int i = 0; i < GameSession.HAND_SIZE; i++)
+                {
+                    if ((holdMask & (1 << i)) == 0)
+                        hand[i] = deck.dealCode();
+                }
+                finals[batched++] = HandHistory.pack(hand, 0);
+                if (batched == BATCH || round == rounds - 1)
+                {
+                    BatchClassifier.classify(finals, types, 0, batched);
+                    for (int i = 0; i < batched; i++)
+                        counts[types[i] + 1]++;
+                    batched = 0;
+                }
+            }
+            return counts;
+        }
+    }
+
+
+    /** class Report : RTP, variance and hit frequency of a simulation */
+    static final class Report
+    {
+        /* final hand counts indexed by handType + 1 */
+        private final long[] counts;
+        private final int[] multipliers;
+        private final long rounds;
+        private final long elapsedNanos;
+
+        Report(long[] counts, int[] multipliers, long elapsedNanos)
+        {
+            this.counts = counts;
+            this.multipliers = multipliers;
+            this.elapsedNanos = elapsedNanos;
+            long total = 0;
+            for (long count : counts)
+                total += count;
+            this.rounds = total;
+        }
+
+        long getRounds()
+        {
+            return rounds;
+        }
+
+        long getCount(int handType)
+        {
+            return counts[handType + 1];
+        }
+
+        /* mean return per unit bet */
+        double getRtp()
+        {
+            double sum = 0;
+            for (int type = 0; type < multipliers.length; type++)
+                sum += (double) getCount(type) * Paytable.returnOf(type, multipliers);
+            return sum / rounds;
+        }
+
+        /* variance of the return of one round */
+        double getVariance()
+        {
+            double squares = 0;
+            for (int type = 0; type < multipliers.length; type++)
+            {
+                double value = Paytable.returnOf(type, multipliers);
+                squares += getCount(type) * value * value;
+            }
+            double rtp = getRtp();
+            return squares / rounds - rtp * rtp;
+        }
+
+        /* half width of the 95% confidence interval of the RTP */
+        double getRtpError()
+        {
+            return Z95 * Math.sqrt(getVariance() / rounds);
+        }
+
+        double getHitFrequency(int handType)
+        {
+            return (double) getCount(handType) / rounds;
+        }
+
+        /* half width of the 95% confidence interval of a hit frequency */
+        double getHitFrequencyError(int handType)
+        {
+            double p = getHitFrequency(handType);
+            return Z95 * Math.sqrt(p * (1 - p) / rounds);
+        }
+
+        double getRoundsPerSecond()
+        {
+            return rounds * 1e9 / elapsedNanos;
+        }
+
+        public String toString()
+        {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("Rounds: %d  (%.0f rounds/s)%n", rounds, getRoundsPerSecond()));
+            sb.append(String.format("RTP: %.6f +/- %.6f   variance: %.4f%n", getRtp(), getRtpError(), getVariance()));
+            sb.append(String.format("%-16s %14s %12s %12s%n", "Hand", "Count", "Frequency", "+/- 95%"));
+            for (int type = multipliers.length - 1; type >= HandEvaluator.NO_WIN; type--)
+            {
+                sb.append(String.format("%-16s %14d %12.8f %12.8f%n", VideoPoker.getHandTypeName(type),
+                        getCount(type), getHitFrequency(type), getHitFrequencyError(type)));
+            }
+            return sb.toString();
+        }
+    }
+
+
+    public static void main(String args[])
+    {
+        long rounds = args.length > 0 ? Long.parseLong(args[0]) : 10_000_000L;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : System.nanoTime();
+        System.out.println("Parallelism: " + ForkJoinPool.commonPool().getParallelism() + ", seed: " + seed);
+        MonteCarloSimulator simulator = new MonteCarloSimulator(VideoPoker.getMultipliers(), HoldStrategy.SIMPLE);
+        System.out.println(simulator.run(rounds, seed));
+    }
+}
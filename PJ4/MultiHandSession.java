@@ -0,0 +1,265 @@
+/*************************************************
+ File: [MultiHandSession.java]
+ By: [Artsem Holdvekht]
+ Description: [Multi-hand VideoPoker (Triple/Ten/Hundred Play) settled in one batched pass]
+ *************************************************/
+package PJ4;
+
+import java.util.*;
+import java.util.random.RandomGenerator;
+
+
+/** class MultiHandSession : one dealt hand, its held cards copied into N
+ *  hands, every hand drawing its replacements from its own copy of the 47
+ *  remaining cards.
+ *
+ *  A round is played in this order, like GameSession:
+ *      bet(amount per hand)  ->  deal()  ->  hold(mask)  ->  draw()  ->  settle()
+ *
+ *  The batched draw works on card codes only:
+ *    - the deck is one int[52]; deal() moves the 5 dealt cards to the front,
+ *      so deck[5 .. 51] are the remaining cards.
+ *    - a hand draws with partial Fisher-Yates steps over deck[5 .. 51].
+ *      Those steps only permute the remaining cards, the next hand starts
+ *      from a permutation of the same 47 cards, which is as good as a
+ *      fresh copy and costs no copy at all.
+ *    - the rank mask, suit AND and rank histogram of the held cards are
+ *      computed once per round; every hand only adds its drawn cards and
+ *      calls HandEvaluator.evaluate(ranks, suits, histogram).
+ *
+ *  Every hand is paid like a GameSession hand: a winning hand adds
+ *  bet * multiplier, a losing hand takes the bet.
+ *
+ *  java PJ4.MultiHandSession [hands] [rounds]   hands/sec for 1, 3, 10, 100 hands
+ */
+class MultiHandSession {
+
+    /* round steps */
+    private static final int BETTING = 0;
+    private static final int BET_PLACED = 1;
+    private static final int DEALT = 2;
+    private static final int DRAWN = 3;
+
+    /* deck[0 .. 4] dealt hand, deck[5 .. 51] remaining cards */
+    private final int[] deck = new int[Cards.DECK_SIZE];
+
+    private final int hands;
+    private final Paytable paytable;
+    private final RandomGenerator random;
+
+    /* per hand: final cards packed as in HandHistory, hand type */
+    private final int[] finalHands;
+    private final int[] handTypes;
+
+    private int balance;
+    private int bet;
+    private int holdMask;
+    private int state = BETTING;
+
+    MultiHandSession(int hands, Paytable paytable, int balance, RandomGenerator random)
+    {
+        this.hands = hands;
+        this.paytable = paytable;
+        this.balance = balance;
+        this.random = random;
+        finalHands = new int[hands];
+        handTypes = new int[hands];
+        for (int code = 0; code < deck.length; code++)
+            deck[code] = code;
+    }
+
+    /**
+     * Task: Places the bet of every hand of the next round.
+     *
+     * @return false if the bet is not positive or all hands together exceed the balance
+     */
+    public boolean bet(int amount)
+    {
+        requireState(BETTING, BET_PLACED);
+        if (amount <= 0 || (long) amount * hands > balance)
+        {
+            return false;
+        }
+        bet = amount;
+        state = BET_PLACED;
+        return true;
+    }
+
+    /**
+     * Task: Deals a new hand.
+     *
+     * @param hand receives the 5 dealt card codes
+     */
+    public void deal(int[] hand)
+    {
+        requireState(BET_PLACED, BET_PLACED);
+        draw(0, GameSession.HAND_SIZE);
+        System.arraycopy(deck, 0, hand, 0, GameSession.HAND_SIZE);
+        holdMask = 0;
+        state = DEALT;
+    }
+
+    /* partial Fisher-Yates: random cards of deck[from ..] into deck[from .. from+count-1] */
+    private void draw(int from, int count)
+    {
+        for (int i = from; i < from + count; i++)
+        {
+            int pick = i + random.nextInt(deck.length - i);
+            int code = deck[pick];
+            deck[pick] = deck[i];
+            deck[i] = code;
+        }
+    }
+
+    /**
+     * Task: Selects the cards every hand keeps, bit i of mask set = keep card i.
+     */
+    public void hold(int mask)
+    {
+        requireState(DEALT, DEALT);
+        holdMask = mask & GameSession.HOLD_ALL;
+    }
+
+    /**
+     * Task: Draws the replacements of every hand and classifies all hands.
+     */
+    public void draw()
+    {
+        requireState(DEALT, DEALT);
+        int[] rankBits = HandEvaluator.CODE_RANK_BIT;
+        int[] suitBits = HandEvaluator.CODE_SUIT_BIT;
+        long[] nibbles = HandEvaluator.CODE_NIBBLE;
+
+        // shared by every hand: the held cards
+        int heldRanks = 0;
+        int heldSuits = 0xF;
+        long heldHistogram = 0;
+        int heldCards = 0;
+        int replaced = 0;
+        for (int i = 0; i < GameSession.HAND_SIZE; i++)
+        {
+            int code = deck[i];
+            if ((holdMask & (1 << i)) != 0)
+            {
+                heldRanks |= rankBits[code];
+                heldSuits &= suitBits[code];
+                heldHistogram += nibbles[code];
+                heldCards |= code << (HandHistory.CARD_BITS * i);
+            }
+            else
+            {
+                replaced++;
+            }
+        }
+        int start = GameSession.HAND_SIZE;
+
+        for (int h = 0; h < hands; h++)
+        {
+            int ranks = heldRanks;
+            int suits = heldSuits;
+            long histogram = heldHistogram;
+            int cards = heldCards;
+            draw(start, replaced);
+            int next = start;
+            for (int i = 0; i < GameSession.HAND_SIZE; i++)
+            {
+                if ((holdMask & (1 << i)) == 0)
+                {
+                    int code = deck[next++];
+                    ranks |= rankBits[code];
+                    suits &= suitBits[code];
+                    histogram += nibbles[code];
+                    cards |= code << (HandHistory.CARD_BITS * i);
+                }
+            }
+            finalHands[h] = cards;
+            handTypes[h] = HandEvaluator.evaluate(ranks, suits, histogram);
+        }
+        state = DRAWN;
+    }
+
+    /**
+     * Task: Pays every hand and updates the balance.
+     *
+     * @return the sum of the payouts of all hands (bet * multiplier of each winning hand)
+     */
+    public long settle()
+    {
+        requireState(DRAWN, DRAWN);
+        long payout = 0;
+        int losing = 0;
+        for (int h = 0; h < hands; h++)
+        {
+            int handType = handTypes[h];
+            payout += paytable.payout(handType, bet);
+            if (handType == HandEvaluator.NO_WIN)
+                losing++;
+        }
+        balance += (int) (payout - (long) losing * bet);
+        state = BETTING;
+        return payout;
+    }
+
+    int getHands()
+    {
+        return hands;
+    }
+
+    public int getBalance()
+    {
+        return balance;
+    }
+
+    /* final hands of the round, packed as in HandHistory, live array */
+    int[] getFinalHands()
+    {
+        return finalHands;
+    }
+
+    /* hand types of the round, live array */
+    int[] getHandTypes()
+    {
+        return handTypes;
+    }
+
+    private void requireState(int first, int last)
+    {
+        if (state < first || state > last)
+        {
+            throw new IllegalStateException("Round step out of order, state " + state);
+        }
+    }
+
+
+    /* Test: hands/sec for several hand counts, holding with HoldStrategy.SIMPLE */
+    public static void main(String args[])
+    {
+        int[] sizes = args.length > 0 ? new int[] {Integer.parseInt(args[0])} : new int[] {1, 3, 10, 100};
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+        int[] hand = new int[GameSession.HAND_SIZE];
+        for (int pass = 0; pass < 2; pass++)
+        {
+            for (int size : sizes)
+            {
+                MultiHandSession session = new MultiHandSession(size, Paytable.JACKS_OR_BETTER_9_6,
+                        Integer.MAX_VALUE / 2, new SplittableRandom(42));
+                int balance = session.getBalance();
+                long start = System.nanoTime();
+                for (int round = 0; round < rounds; round++)
+                {
+                    session.bet(1);
+                    session.deal(hand);
+                    session.hold(HoldStrategy.SIMPLE.holdMask(hand));
+                    session.draw();
+                    session.settle();
+                }
+                double seconds = (System.nanoTime() - start) / 1e9;
+                // return per unit bet as the balance saw it: 1 + balance change / total bet
+                double bets = (double) rounds * size;
+                if (pass == 1)
+                    System.out.printf("%3d hands: %9.0f rounds/s %11.0f hands/s, return %.4f%n", size,
+                            rounds / seconds, bets / seconds, 1 + (session.getBalance() - balance) / bets);
+            }
+        }
+    }
+}
@@ -0,0 +1,325 @@
+/*************************************************
+ File: [PayoutAuditor.java]
+ By: [Artsem Holdvekht]
+ Description: [Parallel re-verification of every payout of a hand history file]
+ *************************************************/
+package PJ4;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+
+/** class PayoutAuditor : checks every record of a HandHistory file against
+ *  a payout table:
+ *    - the final hand is classified again by BatchClassifier, the same
+ *      classifier GameSession.settle() uses, and must be the recorded type
+ *    - the payout must be the bet times the multiplier of that type
+ *    - every held card of the dealt hand must still be in the final hand
+ *    - the dealt and the final hand must each be 5 different cards; such a
+ *      record is reported with expected type NO_WIN and payout 0
+ *
+ *  The file is split in ranges of records by fork/join tasks, every leaf
+ *  maps its own range and reads it in place. A record that fails is sent
+ *  to the Listener at once, nothing but counters is kept in memory.
+ *
+ *  java PJ4.PayoutAuditor [file [m0 m1 ... m8]]   without a file: self test
+ */
+class PayoutAuditor {
+
+    /* records read by one leaf task */
+    private static final long LEAF_RECORDS = 1 << 20;
+
+    /* records classified by one BatchClassifier call */
+    private static final int BATCH = 4096;
+
+    /** Receives the failed records, called from the worker threads */
+    interface Listener
+    {
+        /**
+         * @param record         record number in the file
+         * @param expectedType   hand type of the final hand
+         * @param expectedPayout payout of the final hand
+         */
+        void mismatch(long record, long cards, int bet, int payout, int flags, int expectedType, long expectedPayout);
+    }
+
+    /** Prints one line per failed record */
+    static Listener printer(final PrintStream out)
+    {
+        return (record, cards, bet, payout, flags, expectedType, expectedPayout) -> {
+            synchronized (out)
+            {
+                out.printf("record %d: dealt %s hold %s final %s, paid %s %d, expected %s %d (bet %d)%n",
+                        record, handString(HandHistory.dealtHand(cards)),
+                        holdString(HandHistory.holdMask(flags)), handString(HandHistory.finalHand(cards)),
+                        VideoPoker.getHandTypeName(HandHistory.handType(flags)), payout,
+                        VideoPoker.getHandTypeName(expectedType), expectedPayout, bet);
+            }
+        };
+    }
+
+    /* 1 per held position, card 1 first */
+    private static String holdString(int holdMask)
+    {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < GameSession.HAND_SIZE; i++)
+            text.append((holdMask >>> i) & 1);
+        return text.toString();
+    }
+
+    private static String handString(int hand)
+    {
+        StringBuilder text = new StringBuilder("[");
+        for (int i = 0; i < GameSession.HAND_SIZE; i++)
+        {
+            int code = HandHistory.card(hand, i);
+            text.append(i > 0 ? ", " : "").append(code < Cards.DECK_SIZE ? Cards.byCode(code).toString() : "?");
+        }
+        return text.append(']').toString();
+    }
+
+    /** Totals of an audit */
+    static final class Report
+    {
+        private long records;
+        private long mismatches;
+        private long paid;
+        private long expected;
+        private long elapsedNanos;
+
+        private void add(Report other)
+        {
+            records += other.records;
+            mismatches += other.mismatches;
+            paid += other.paid;
+            expected += other.expected;
+        }
+
+        long getRecords()
+        {
+            return records;
+        }
+
+        long getMismatches()
+        {
+            return mismatches;
+        }
+
+        /* sum of the recorded payouts */
+        long getPaid()
+        {
+            return paid;
+        }
+
+        /* sum of the payouts the paytable gives */
+        long getExpected()
+        {
+            return expected;
+        }
+
+        double getRecordsPerSecond()
+        {
+            return records / (elapsedNanos / 1e9);
+        }
+
+        public String toString()
+        {
+            return String.format("%d records, %d mismatches, paid %d, expected %d, %.0f records/s (%.2f billion/hour)",
+                    records, mismatches, paid, expected, getRecordsPerSecond(), getRecordsPerSecond() * 3600 / 1e9);
+        }
+    }
+
+    private final int[] multipliers;
+
+    PayoutAuditor(int[] multipliers)
+    {
+        this.multipliers = multipliers.clone();
+    }
+
+    /**
+     * Task: Audits every record of the file.
+     */
+    Report audit(Path file, Listener listener, ForkJoinPool pool) throws IOException
+    {
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            long records = HandHistory.records(channel);
+            Report report = pool.invoke(new Range(channel, 0, records, listener));
+            report.elapsedNanos = System.nanoTime() - start;
+            return report;
+        }
+    }
+
+    /** Records [first, end) of the file */
+    private final class Range extends RecursiveTask<Report>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final FileChannel channel;
+        private final long first;
+        private final long end;
+        private final Listener listener;
+
+        Range(FileChannel channel, long first, long end, Listener listener)
+        {
+            this.channel = channel;
+            this.first = first;
+            this.end = end;
+            this.listener = listener;
+        }
+
+        protected Report compute()
+        {
+            if (end - first > LEAF_RECORDS)
+            {
+                long middle = (first + end) >>> 1;
+                Range right = new Range(channel, middle, end, listener);
+                right.fork();
+                Report report = new Range(channel, first, middle, listener).compute();
+                report.add(right.join());
+                return report;
+            }
+            try
+            {
+                return check(HandHistory.map(channel, first, end - first));
+            }
+            catch (IOException e)
+            {
+                throw new java.io.UncheckedIOException(e);
+            }
+        }
+
+        private Report check(MappedByteBuffer buffer)
+        {
+            Report report = new Report();
+            long[] cards = new long[BATCH];
+            int[] bets = new int[BATCH];
+            int[] paid = new int[BATCH];
+            int[] flags = new int[BATCH];
+            int[] slots = new int[BATCH];
+            int[] hands = new int[BATCH];
+            int[] types = new int[BATCH];
+            int[] payouts = new int[BATCH];
+            int records = buffer.limit() / HandHistory.RECORD_SIZE;
+            for (int base = 0; base < records; base += BATCH)
+            {
+                int count = Math.min(BATCH, records - base);
+                // read the mapped records once, only real hands go to the classifier
+                int valid = 0;
+                for (int j = 0, offset = base * HandHistory.RECORD_SIZE; j < count; j++, offset += HandHistory.RECORD_SIZE)
+                {
+                    cards[j] = buffer.getLong(offset);
+                    bets[j] = buffer.getInt(offset + 8);
+                    paid[j] = buffer.getInt(offset + 12);
+                    flags[j] = buffer.getInt(offset + 20);
+                    int last = HandHistory.finalHand(cards[j]);
+                    if (BatchClassifier.isValid(HandHistory.dealtHand(cards[j])) && BatchClassifier.isValid(last))
+                    {
+                        slots[j] = valid;
+                        hands[valid++] = last;
+                    }
+                    else
+                        slots[j] = -1;
+                }
+                BatchClassifier.evaluate(hands, multipliers, types, payouts, 0, valid);
+
+                for (int j = 0; j < count; j++)
+                {
+                    int slot = slots[j];
+                    int type = slot < 0 ? HandEvaluator.NO_WIN : types[slot];
+                    // a large bet times a large multiplier does not fit in the int payout field
+                    long expected = slot < 0 ? 0 : (long) bets[j] * payouts[slot];
+                    report.paid += paid[j];
+                    report.expected += expected;
+                    if (slot < 0 || paid[j] != expected || type != HandHistory.handType(flags[j])
+                            || !heldCardsKept(HandHistory.dealtHand(cards[j]), HandHistory.finalHand(cards[j]), HandHistory.holdMask(flags[j])))
+                    {
+                        report.mismatches++;
+                        listener.mismatch(first + base + j, cards[j], bets[j], paid[j], flags[j], type, expected);
+                    }
+                }
+            }
+            report.records = records;
+            return report;
+        }
+    }
+
+    private static boolean heldCardsKept(int dealt, int last, int holdMask)
+    {
+        int kept = 0;
+        for (int i = 0; i < GameSession.HAND_SIZE; i++)
+            if ((holdMask & (1 << i)) != 0)
+                kept |= HandHistory.CARD_MASK << (HandHistory.CARD_BITS * i);
+        return (dealt & kept) == (last & kept);
+    }
+
+
+    public static void main(String args[]) throws IOException
+    {
+        int[] multipliers = VideoPoker.getMultipliers();
+        if (args.length > 1)
+            for (int i = 0; i < multipliers.length && i + 1 < args.length; i++)
+                multipliers[i] = Integer.parseInt(args[i + 1]);
+
+        Path file;
+        boolean selfTest = args.length == 0;
+        if (selfTest)
+        {
+            // honest rounds with five tampered records
+            file = Files.createTempFile("hands", ".bin");
+            GameSession session = new GameSession(new IntDeck(1, new SplittableRandom(7)), multipliers, Integer.MAX_VALUE / 2);
+            try (HandHistoryWriter writer = new HandHistoryWriter(file))
+            {
+                session.setSink(writer);
+                for (int i = 0; i < 5_000_000; i++)
+                {
+                    session.bet(1);
+                    session.deal();
+                    session.hold(i % GameSession.HOLD_ALL);
+                    session.draw();
+                    RoundResult result = session.settle();
+                    if (i == 1000)
+                        writer.write(result.getCards(), 1, result.getPayout() + 5, 0,
+                                HandHistory.flags(result.getHoldMask(), result.getHandType()));
+                    if (i == 2000)
+                        writer.write(result.getCards(), 1, result.getPayout(), 0,
+                                HandHistory.flags(result.getHoldMask(), HandEvaluator.ROYAL_FLUSH));
+                    if (i == 3000)
+                        writer.write(result.getCards() ^ (1L << HandHistory.HAND_BITS), 1, result.getPayout(), 0,
+                                HandHistory.flags(GameSession.HOLD_ALL, result.getHandType()));
+                    if (i == 4000)
+                    {
+                        // a final card code that is no card, recorded as a paid-nothing loss
+                        long cards = result.getCards() | ((long) HandHistory.CARD_MASK << HandHistory.HAND_BITS);
+                        writer.write(cards, 1, 0, 0, HandHistory.flags(0, HandEvaluator.NO_WIN));
+                    }
+                    if (i == 5000)
+                    {
+                        // the first final card repeated in the second position
+                        long cards = result.getCards();
+                        long first = (cards >>> HandHistory.HAND_BITS) & HandHistory.CARD_MASK;
+                        long second = (long) HandHistory.CARD_MASK << (HandHistory.HAND_BITS + HandHistory.CARD_BITS);
+                        cards = (cards & ~second) | (first << (HandHistory.HAND_BITS + HandHistory.CARD_BITS));
+                        writer.write(cards, 1, result.getPayout(), 0, HandHistory.flags(0, result.getHandType()));
+                    }
+                }
+            }
+        }
+        else
+        {
+            file = Paths.get(args[0]);
+        }
+
+        Report report = new PayoutAuditor(multipliers).audit(file, printer(System.out), ForkJoinPool.commonPool());
+        System.out.println(report);
+        if (selfTest)
+            Files.deleteIfExists(file);
+    }
+}
@@ -0,0 +1,167 @@
+/*************************************************
+ File: [Paytable.java]
+ By: [Artsem Holdvekht]
+ Description: [VideoPoker payout tables, built in or loaded from a properties file]
+ *************************************************/
+package PJ4;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+
+/** class Paytable : multipliers of the 9 winning hand types, compiled into
+ *  a flat table indexed by handType + 1 (NO_WIN pays 0), so paying a hand
+ *  is one array read and one multiply, without any branch on the type.
+ *
+ *  Settlement, the one rule every session, hint, RTP figure and metric of
+ *  this package follows: multipliers are paid "to one", as VideoPoker
+ *  always did. A winning hand (any type but NO_WIN) keeps its bet and adds
+ *  bet * multiplier to the balance, NO_WIN loses the bet. What a round
+ *  gives back per unit bet is therefore multiplier + 1 for a winning hand
+ *  and 0 for NO_WIN, see returnOf(); the return to player is its mean.
+ *  A published "for one" table (a pair paying 1 gives the bet back) is
+ *  entered with every multiplier reduced by 1, so its pair pays 0 here.
+ *
+ *  Properties file format (one key per winning hand type, all required):
+ *
+ *      name=Jacks or Better 9/6
+ *      royalPair=0
+ *      twoPairs=1
+ *      threeOfAKind=2
+ *      straight=3
+ *      flush=5
+ *      fullHouse=8
+ *      fourOfAKind=24
+ *      straightFlush=49
+ *      royalFlush=799
+ */
+final class Paytable {
+
+    /* property keys, same order as the hand types */
+    static final String[] KEYS = {
+            "royalPair", "twoPairs", "threeOfAKind", "straight", "flush",
+            "fullHouse", "fourOfAKind", "straightFlush", "royalFlush"};
+
+    /* the table VideoPoker always had */
+    static final Paytable CLASSIC = new Paytable("Classic", VideoPoker.getMultipliers());
+
+    /* the published for-one tables, converted to to-one */
+    static final Paytable JACKS_OR_BETTER_9_6 = new Paytable("Jacks or Better 9/6",
+            new int[] {0, 1, 2, 3, 5, 8, 24, 49, 799});
+
+    static final Paytable JACKS_OR_BETTER_8_5 = new Paytable("Jacks or Better 8/5",
+            new int[] {0, 1, 2, 3, 4, 7, 24, 49, 799});
+
+    private final String name;
+    private final int[] multipliers;
+
+    /* multiplier of handType + 1, 0 first */
+    private final int[] payouts;
+
+    /**
+     * Constructor: multipliers[handType] for the 9 winning hand types, Royal Pair first.
+     */
+    Paytable(String name, int[] multipliers)
+    {
+        if (multipliers.length != KEYS.length)
+        {
+            throw new IllegalArgumentException("A paytable needs " + KEYS.length + " multipliers, got " + multipliers.length);
+        }
+        this.name = name;
+        this.multipliers = multipliers.clone();
+        payouts = new int[KEYS.length + 1];
+        System.arraycopy(multipliers, 0, payouts, 1, KEYS.length);
+    }
+
+    /**
+     * Task: Builds a paytable from properties, see the class comment for the keys.
+     *
+     * @throws IllegalArgumentException if a key is missing or not a number
+     */
+    static Paytable load(Properties properties)
+    {
+        int[] multipliers = new int[KEYS.length];
+        for (int i = 0; i < KEYS.length; i++)
+        {
+            String value = properties.getProperty(KEYS[i]);
+            if (value == null)
+            {
+                throw new IllegalArgumentException("Paytable has no " + KEYS[i]);
+            }
+            try
+            {
+                multipliers[i] = Integer.parseInt(value.trim());
+            }
+            catch (NumberFormatException e)
+            {
+                throw new IllegalArgumentException("Paytable " + KEYS[i] + " is not a number: " + value);
+            }
+        }
+        return new Paytable(properties.getProperty("name", "Custom"), multipliers);
+    }
+
+    /**
+     * Task: Loads a paytable from a properties file.
+     */
+    static Paytable load(Path file) throws IOException
+    {
+        Properties properties = new Properties();
+        try (Reader in = Files.newBufferedReader(file))
+        {
+            properties.load(in);
+        }
+        return load(properties);
+    }
+
+    /**
+     * Task: Returns a built in paytable ("classic", "9/6", "8/5") or loads the named file.
+     */
+    static Paytable lookup(String nameOrFile) throws IOException
+    {
+        switch (nameOrFile.toLowerCase())
+        {
+            case "classic":
+                return CLASSIC;
+            case "9/6":
+                return JACKS_OR_BETTER_9_6;
+            case "8/5":
+                return JACKS_OR_BETTER_8_5;
+            default:
+                return load(Paths.get(nameOrFile));
+        }
+    }
+
+    /**
+     * Task: Returns bet * multiplier of a hand type, 0 for NO_WIN.
+     */
+    int payout(int handType, int bet)
+    {
+        return bet * payouts[handType + 1];
+    }
+
+    /**
+     * Task: Returns what a final hand gives back per unit bet under the
+     *       settlement rule above: multiplier + 1 for a win, 0 for NO_WIN.
+     */
+    static int returnOf(int handType, int[] multipliers)
+    {
+        return handType == HandEvaluator.NO_WIN ? 0 : multipliers[handType] + 1;
+    }
+
+    String getName()
+    {
+        return name;
+    }
+
+    /* copy, indexed by hand type */
+    int[] getMultipliers()
+    {
+        return multipliers.clone();
+    }
+
+    public String toString()
+    {
+        return name + " " + Arrays.toString(multipliers);
+    }
+}
@@ -7,6 +7,7 @@
 package PJ4;
 
 import java.util.*;
+import java.util.random.RandomGenerator;
 
 
 //=================================================================================
@@ -99,52 +100,167 @@ class Card {
 }
 
 
+//=================================================================================
+
+/** class Cards : registry of the 52 canonical Card objects
+ *  Card is immutable, so every deck and every hand shares these instances.
+ *  Card code - (suit-1)*13 + (rank-1), values 0 to 51
+ *  Code 52 is the joker of the wild card variants, it has no Card object.
+ *  Use of(suit, rank) or byCode(code) instead of new Card(suit, rank).
+ */
+final class Cards {
+
+    /* number of distinct cards in a 52-card deck */
+    static final int DECK_SIZE = 52;
+
+    /* card code of a joker */
+    static final int JOKER = DECK_SIZE;
+
+    /* canonical cards indexed by card code */
+    private static final Card[] byCode = new Card[DECK_SIZE];
+
+    static
+    {
+        for (int suit = 1; suit <= 4; suit++)
+        {
+            for (int rank = 1; rank <= 13; rank++)
+            {
+                try
+                {
+                    byCode[code(suit, rank)] = new Card(suit, rank);
+                }
+                catch (PlayingCardException e)
+                {
+                    throw new ExceptionInInitializerError(e);
+                }
+            }
+        }
+    }
+
+    private Cards()
+    {
+    }
+
+    /**
+     * Task: Returns the canonical card, or null if rank or suit is invalid.
+     */
+    static Card of(int suit, int rank)
+    {
+        if ((rank < 1) || (rank > 13) || (suit < 1) || (suit > 4))
+            return null;
+        return byCode[code(suit, rank)];
+    }
+
+    /**
+     * Task: Returns the canonical card of a card code (0-51).
+     */
+    static Card byCode(int code)
+    {
+        return byCode[code];
+    }
+
+    /**
+     * Task: Returns the name of a card code, jokers included.
+     */
+    static String name(int code)
+    {
+        return code == JOKER ? "Joker" : byCode[code].toString();
+    }
+
+    /**
+     * Task: Returns the card code of a card.
+     */
+    static int code(Card card)
+    {
+        return code(card.getSuit(), card.getRank());
+    }
+
+    /**
+     * Task: Returns the card code of a valid suit and rank.
+     */
+    static int code(int suit, int rank)
+    {
+        return (suit - 1) * 13 + (rank - 1);
+    }
+
+    /**
+     * Task: Returns the rank (1-13) of a card code.
+     */
+    static int rank(int code)
+    {
+        return code % 13 + 1;
+    }
+
+    /**
+     * Task: Returns the suit (1-4) of a card code.
+     */
+    static int suit(int code)
+    {
+        return code / 13 + 1;
+    }
+}
+
+
 //=================================================================================
 
 /** class Decks represents : n decks of 52 playing cards
- *  Use class Card to construct n * 52 playing cards!
+ *  Use class Cards to get the n * 52 playing cards, the same 52 Card
+ *  objects are shared by all decks.
  *
- *  Do not add new data fields!
- *  Do not modify any methods
- *  You may add private methods 
+ *  The cards live in one array with a deal cursor, so reset() does not
+ *  copy any card.
  */
 
-class Decks {
+class Decks implements CardDeck {
 
-    /* this is used to keep track of original n*52 cards */
-    private List<Card> saveDecks;   
+    /* all n*52 cards, always a permutation of the original decks    */
+    /* playDecks[0 .. dealCursor-1] holds remaining cards during games */
+    /* playDecks[dealCursor .. end] holds the dealt cards             */
+    private Card[] playDecks;
 
-    /* this starts by copying all cards from saveDecks   */
-    /* it holds remaining cards during games             */
-    private List<Card> playDecks;
+    /* number of cards not dealt yet, deal() moves it down, reset() rewinds it */
+    private int dealCursor;
 
     /* number of 52-card decks in this object */
     private int numberDecks;
 
+    /* random source of shuffle(), owned by this deck */
+    private final RandomGenerator random;
+
 
     /**
-     *  Constructor: Creates default one deck of 52 playing cards in saveDecks and copy them to playDecks.
+     *  Constructor: Creates default one deck of 52 playing cards.
      *               Initialize numberDecks=1
-     *  Note: You need to catch PlayingCardException from Card constructor
-     *	      Use ArrayList for both saveDecks & playDecks
      */
     public Decks()
     {
-        numberDecks = 1;
+        this(1);
     }
 
 
     /**
-     * Constructor: Creates n 52-card decks of playing cards in
-     *              saveDecks and copy them to playDecks.
+     * Constructor: Creates n 52-card decks of playing cards in playDecks.
      *              initialize numberDecks=n
-     * Note: You need to catch PlayingCardException from Card constructor
-     *	     Use ArrayList for both saveDecks & playDecks
+     * Note: Cards are the shared instances from class Cards
      */
     public Decks(int n)
     {
-        saveDecks = new ArrayList<Card>();
+        this(n, new SplittableRandom());
+    }
+
+
+    /**
+     * Constructor: Creates n 52-card decks shuffled with the given random source.
+     * Note: a seeded generator, e.g. new SplittableRandom(seed), reproduces
+     *       exactly the same shuffles. The generator is used by this deck only
+     *       and does not need to be thread-safe.
+     */
+    public Decks(int n, RandomGenerator random)
+    {
+        this.random = random;
         numberDecks = n;
+        playDecks = new Card[n * Cards.DECK_SIZE];
+        int next = 0;
         //loop for the number of decks passed
         for(int i = 0; i < numberDecks; i++)
         {
@@ -154,30 +270,27 @@ class Decks {
                 //loop through the ranks of the cards
                 for(int rank = 1; rank <= 13; rank++)
                 {
-                    //try to add the new Card object to saveDecks
-                    try
-                    {
-                        saveDecks.add(new Card(suit, rank));
-                    }
-                    //throw exception if there was an error
-                    catch(PlayingCardException e)
-                    {
-                        System.out.println(e.getMessage());
-                    }
+                    //add the shared Card object to playDecks
+                    playDecks[next++] = Cards.of(suit, rank);
                 } //end for rank loop
             } //end for suit loop
         } //end for numberDecks loop
-        playDecks = new ArrayList<Card>(saveDecks);
+        dealCursor = playDecks.length;
     } // end constructor
 
 
     /**
-     * Task: Shuffles cards in playDecks.
-     * Hint: Look at java.util.Collections
+     * Task: Shuffles the remaining cards in playDecks (Fisher-Yates).
      */
     public void shuffle()
     {
-        Collections.shuffle(playDecks);
+        for (int i = dealCursor - 1; i > 0; i--)
+        {
+            int pick = random.nextInt(i + 1);
+            Card tmp = playDecks[i];
+            playDecks[i] = playDecks[pick];
+            playDecks[pick] = tmp;
+        }
     }
 
 
@@ -188,40 +301,48 @@ class Decks {
      * @return a list containing cards that were dealt
      * @throw PlayingCardException if numberCards > number of remaining cards
      *
-     * Note: You need to create ArrayList to stored dealt cards
-     *       and remove dealt cards from playDecks
+     * Note: cards are dealt from the end of the remaining cards
      *
      */
     public List<Card> deal(int numberCards) throws PlayingCardException
     {
-        List<Card> dealtCards = new ArrayList<Card>();
-        int cardsInDeck = playDecks.size();
-        if(numberCards > cardsInDeck)
+        if(numberCards > dealCursor)
         {
-            throw new PlayingCardException("Cards left in the deck- " + cardsInDeck + " less than the number of cards being dealt- " + numberCards);
+            throw new PlayingCardException("Cards left in the deck- " + dealCursor + " less than the number of cards being dealt- " + numberCards);
         }
-        for(int i = 0; i < numberCards; i++)
+        Card[] dealtCards = new Card[numberCards];
+        deal(dealtCards, 0, numberCards);
+        return new ArrayList<Card>(Arrays.asList(dealtCards));
+    }
+
+
+    /**
+     * Task: Deals cards into a caller supplied array.
+     *
+     * @param hand        array receiving the cards
+     * @param offset      index of the first card in hand
+     * @param numberCards number of cards to deal
+     * @return number of cards dealt, less than numberCards if the deck ran out
+     */
+    public int deal(Card[] hand, int offset, int numberCards)
+    {
+        int count = Math.min(numberCards, dealCursor);
+        for(int i = 0; i < count; i++)
         {
-            Card drawCardPlayDecks = playDecks.remove((playDecks.size()-1));
-            dealtCards.add(drawCardPlayDecks);
+            hand[offset + i] = playDecks[--dealCursor];
         }
-        return dealtCards;
+        return count;
     }
 
 
     /**
-     * Task: Resets playedDeck by cpoying all cards from the resetDeck.
+     * Task: Puts all dealt cards back by rewinding the deal cursor, O(1).
+     * Note: playDecks is a permutation of the n*52 cards at any time, so the
+     *       cards come back in their last shuffled order, not the original one.
      */
     public void reset()
     {
-        //clear the playDecks
-        playDecks.clear();
-
-        //copy new cards from the saveDecks
-        for(int i = 0; i < saveDecks.size(); i++)
-        {
-            playDecks.add(saveDecks.get(i));
-        }
+        dealCursor = playDecks.length;
     }
 
 
@@ -230,7 +351,7 @@ class Decks {
      */
     public int remain()
     {
-	return playDecks.size();
+	return dealCursor;
     }
 
     /**
@@ -238,7 +359,7 @@ class Decks {
      */
     public String toString()
     {
-	return "" + playDecks;
+	return "" + Arrays.asList(playDecks).subList(0, dealCursor);
     }
 
 
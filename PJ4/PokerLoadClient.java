@@ -0,0 +1,136 @@
+/*************************************************
+ File: [PokerLoadClient.java]
+ By: [Artsem Holdvekht]
+ Description: [Load generator for PokerServer using pipelined PokerProtocol requests]
+ *************************************************/
+package PJ4;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/** class PokerLoadClient : every connection runs on its own thread and sends
+ *  "pipeline" complete rounds (BET, DEAL, HOLD, DRAW) in one write before
+ *  reading the answers. The hold mask is fixed since the cards are not
+ *  known when the round is sent.
+ *
+ *  java PJ4.PokerLoadClient [host|embedded] [port] [connections] [rounds per connection] [pipeline]
+ *  "embedded" starts a PokerServer in this JVM on a free port.
+ */
+class PokerLoadClient {
+
+    /* request bytes of one round */
+    private static final int ROUND_REQUEST = 5 + 1 + 2 + 1;
+
+    /* response bytes of one round */
+    private static final int ROUND_RESPONSE = PokerProtocol.responseSize(PokerProtocol.BET_OK)
+            + PokerProtocol.responseSize(PokerProtocol.DEALT) + PokerProtocol.responseSize(PokerProtocol.HELD)
+            + PokerProtocol.responseSize(PokerProtocol.DRAWN);
+
+    private final LongAdder rounds = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    /**
+     * Task: Plays the given rounds over one connection.
+     */
+    void play(InetSocketAddress address, int roundsToPlay, int pipeline, int holdMask) throws IOException
+    {
+        try (SocketChannel channel = SocketChannel.open(address))
+        {
+            channel.setOption(java.net.StandardSocketOptions.TCP_NODELAY, true);
+            ByteBuffer out = ByteBuffer.allocateDirect(ROUND_REQUEST * pipeline);
+            ByteBuffer in = ByteBuffer.allocateDirect(ROUND_RESPONSE * pipeline);
+            int played = 0;
+            while (played < roundsToPlay)
+            {
+                int batch = Math.min(pipeline, roundsToPlay - played);
+                out.clear();
+                for (int i = 0; i < batch; i++)
+                {
+                    out.put(PokerProtocol.BET).putInt(1);
+                    out.put(PokerProtocol.DEAL);
+                    out.put(PokerProtocol.HOLD).put((byte) holdMask);
+                    out.put(PokerProtocol.DRAW);
+                }
+                out.flip();
+                while (out.hasRemaining())
+                    channel.write(out);
+
+                // read the answers of the batch frame by frame
+                in.clear();
+                int frames = batch * 4;
+                int position = 0;
+                while (frames > 0)
+                {
+                    if (channel.read(in) < 0)
+                        throw new IOException("server closed the connection");
+                    while (frames > 0 && in.position() > position)
+                    {
+                        byte opcode = in.get(position);
+                        int size = PokerProtocol.responseSize(opcode);
+                        if (size < 0)
+                            throw new IOException("bad response opcode " + opcode);
+                        if (in.position() - position < size)
+                            break;
+                        if (opcode == PokerProtocol.ERROR)
+                            errors.increment();
+                        else if (opcode == PokerProtocol.DRAWN)
+                            rounds.increment();
+                        position += size;
+                        frames--;
+                    }
+                }
+                played += batch;
+            }
+        }
+    }
+
+
+    public static void main(String args[]) throws Exception
+    {
+        String host = args.length > 0 ? args[0] : "embedded";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 7777;
+        int connections = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+        int roundsPerConnection = args.length > 3 ? Integer.parseInt(args[3]) : 100_000;
+        int pipeline = args.length > 4 ? Integer.parseInt(args[4]) : 64;
+
+        PokerServer server = null;
+        if (host.equals("embedded"))
+        {
+            server = new PokerServer(0, VideoPoker.getMultipliers(), Integer.MAX_VALUE / 2);
+            Thread thread = new Thread(server, "poker-server");
+            thread.setDaemon(true);
+            thread.start();
+            host = "localhost";
+            port = server.getPort();
+        }
+
+        final InetSocketAddress address = new InetSocketAddress(host, port);
+        final PokerLoadClient client = new PokerLoadClient();
+        ExecutorService threads = Executors.newFixedThreadPool(connections);
+        List<Future<?>> done = new ArrayList<Future<?>>();
+        long start = System.nanoTime();
+        for (int i = 0; i < connections; i++)
+        {
+            done.add(threads.submit(() -> {
+                client.play(address, roundsPerConnection, pipeline, 0);
+                return null;
+            }));
+        }
+        for (Future<?> connection : done)
+            connection.get();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        threads.shutdown();
+        if (server != null)
+            server.close();
+
+        System.out.printf("Connections: %d, pipeline: %d%n", connections, pipeline);
+        System.out.printf("Rounds: %d in %.2f s, %.0f rounds/s, errors: %d%n",
+                client.rounds.sum(), seconds, client.rounds.sum() / seconds, client.errors.sum());
+    }
+}
@@ -0,0 +1,86 @@
+/*************************************************
+ File: [PokerProtocol.java]
+ By: [Artsem Holdvekht]
+ Description: [Binary frames of the VideoPoker network protocol]
+ *************************************************/
+package PJ4;
+
+
+/** class PokerProtocol : frame layout shared by PokerServer and PokerLoadClient.
+ *
+ *  Every frame starts with a 1 byte opcode and has a fixed size per opcode,
+ *  so no length prefix is needed. Integers are big endian, cards are 1 byte
+ *  card codes (0-51, see class Cards). A client may send many requests
+ *  without waiting (pipelining), responses come back in request order.
+ *
+ *  Requests                       Responses
+ *    BET   int amount     (5)       BET_OK  int balance                        (5)
+ *    DEAL                 (1)       DEALT   5 cards                            (6)
+ *    HOLD  byte mask      (2)       HELD                                       (1)
+ *    DRAW                 (1)       DRAWN   5 cards, byte handType,
+ *                                           int payout, int balance            (15)
+ *                                   ERROR   byte error code                    (2)
+ */
+final class PokerProtocol {
+
+    static final byte BET = 0x01;
+    static final byte DEAL = 0x02;
+    static final byte HOLD = 0x03;
+    static final byte DRAW = 0x04;
+
+    static final byte BET_OK = (byte) 0x81;
+    static final byte DEALT = (byte) 0x82;
+    static final byte HELD = (byte) 0x83;
+    static final byte DRAWN = (byte) 0x84;
+    static final byte ERROR = (byte) 0xFF;
+
+    /* error codes */
+    static final byte BAD_BET = 1;
+    static final byte OUT_OF_ORDER = 2;
+    static final byte UNKNOWN_OPCODE = 3;
+
+    private PokerProtocol()
+    {
+    }
+
+    /**
+     * Task: Returns the size of a request frame, -1 for an unknown opcode.
+     */
+    static int requestSize(byte opcode)
+    {
+        switch (opcode)
+        {
+            case BET:
+                return 5;
+            case DEAL:
+            case DRAW:
+                return 1;
+            case HOLD:
+                return 2;
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * Task: Returns the size of a response frame, -1 for an unknown opcode.
+     */
+    static int responseSize(byte opcode)
+    {
+        switch (opcode)
+        {
+            case BET_OK:
+                return 5;
+            case DEALT:
+                return 1 + GameSession.HAND_SIZE;
+            case HELD:
+                return 1;
+            case DRAWN:
+                return 1 + GameSession.HAND_SIZE + 1 + 4 + 4;
+            case ERROR:
+                return 2;
+            default:
+                return -1;
+        }
+    }
+}
@@ -0,0 +1,296 @@
+/*************************************************
+ File: [PokerServer.java]
+ By: [Artsem Holdvekht]
+ Description: [Non-blocking NIO server that plays VideoPoker sessions over PokerProtocol]
+ *************************************************/
+package PJ4;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.util.*;
+
+
+/** class PokerServer : one selector thread serving every connection.
+ *
+ *  Each connection owns a GameSession with its own IntDeck. All complete
+ *  request frames in the read buffer are answered in one pass and the
+ *  responses are written with one write per readable event, so pipelined
+ *  requests cost no extra system calls. Frames that do not fit the write
+ *  buffer stay queued and are answered as soon as it drains.
+ *
+ *  java PJ4.PokerServer [port] [starting balance]
+ */
+class PokerServer implements Runnable, AutoCloseable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Selector selector;
+    private final ServerSocketChannel server;
+    private final int[] multipliers;
+    private final int startingBalance;
+    private final SplittableRandom seeds = new SplittableRandom();
+
+    /* set by close(), the selector thread then closes every channel */
+    private volatile boolean closed;
+    private volatile Thread loop;
+
+    /** State of one client */
+    private final class Connection
+    {
+        final GameSession session = new GameSession(new IntDeck(1, seeds.split()), multipliers, startingBalance);
+        final ByteBuffer in = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        final ByteBuffer out = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    }
+
+    PokerServer(int port, int[] multipliers, int startingBalance) throws IOException
+    {
+        this.multipliers = multipliers.clone();
+        this.startingBalance = startingBalance;
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(port));
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    int getPort()
+    {
+        return server.socket().getLocalPort();
+    }
+
+    /**
+     * Task: Runs the selector loop until close() is called.
+     */
+    public void run()
+    {
+        loop = Thread.currentThread();
+        try
+        {
+            while (!closed)
+            {
+                selector.select();
+                if (closed)
+                    break;
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext())
+                {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    try
+                    {
+                        if (key.isAcceptable())
+                            accept();
+                        else
+                        {
+                            if (key.isReadable())
+                                read(key);
+                            if (key.isValid() && key.isWritable())
+                                write(key);
+                        }
+                    }
+                    catch (IOException | CancelledKeyException e)
+                    {
+                        // client gone, or close() cancelled the key meanwhile
+                        key.cancel();
+                        key.channel().close();
+                    }
+                }
+            }
+        }
+        catch (IOException | ClosedSelectorException e)
+        {
+            // closed
+        }
+        finally
+        {
+            closeChannels();
+        }
+    }
+
+    private void accept() throws IOException
+    {
+        SocketChannel client = server.accept();
+        if (client == null)
+            return;
+        client.configureBlocking(false);
+        client.setOption(java.net.StandardSocketOptions.TCP_NODELAY, true);
+        client.register(selector, SelectionKey.OP_READ, new Connection());
+    }
+
+    private void read(SelectionKey key) throws IOException
+    {
+        Connection connection = (Connection) key.attachment();
+        SocketChannel channel = (SocketChannel) key.channel();
+        if (channel.read(connection.in) < 0)
+        {
+            key.cancel();
+            channel.close();
+            return;
+        }
+        write(key);
+    }
+
+    /**
+     * Task: Answers complete frames in the read buffer while the largest
+     *       response still fits, and reports whether one was left behind.
+     */
+    private static boolean answer(Connection connection)
+    {
+        ByteBuffer in = connection.in;
+        in.flip();
+        int largest = PokerProtocol.responseSize(PokerProtocol.DRAWN);
+        while (in.hasRemaining() && connection.out.remaining() >= largest)
+        {
+            int size = PokerProtocol.requestSize(in.get(in.position()));
+            if (size < 0)
+            {
+                in.get();
+                connection.out.put(PokerProtocol.ERROR).put(PokerProtocol.UNKNOWN_OPCODE);
+                continue;
+            }
+            if (in.remaining() < size)
+                break;
+            handle(connection.session, in, connection.out);
+        }
+        int next = in.hasRemaining() ? PokerProtocol.requestSize(in.get(in.position())) : 0;
+        boolean backlog = in.hasRemaining() && (next < 0 || in.remaining() >= next);
+        in.compact();
+        return backlog;
+    }
+
+    /**
+     * Task: Answers one complete request frame.
+     */
+    static void handle(GameSession session, ByteBuffer in, ByteBuffer out)
+    {
+        byte opcode = in.get();
+        try
+        {
+            switch (opcode)
+            {
+                case PokerProtocol.BET:
+                    if (session.bet(in.getInt()))
+                        out.put(PokerProtocol.BET_OK).putInt(session.getBalance());
+                    else
+                        out.put(PokerProtocol.ERROR).put(PokerProtocol.BAD_BET);
+                    break;
+                case PokerProtocol.DEAL:
+                    out.put(PokerProtocol.DEALT);
+                    putCards(out, session.deal());
+                    break;
+                case PokerProtocol.HOLD:
+                    session.hold(in.get());
+                    out.put(PokerProtocol.HELD);
+                    break;
+                case PokerProtocol.DRAW:
+                    session.draw();
+                    RoundResult result = session.settle();
+                    out.put(PokerProtocol.DRAWN);
+                    putCards(out, session.getHand());
+                    out.put((byte) result.getHandType()).putInt(result.getPayout()).putInt(result.getBalance());
+                    break;
+                default:
+                    out.put(PokerProtocol.ERROR).put(PokerProtocol.UNKNOWN_OPCODE);
+            }
+        }
+        catch (IllegalStateException e)
+        {
+            out.put(PokerProtocol.ERROR).put(PokerProtocol.OUT_OF_ORDER);
+        }
+    }
+
+    private static void putCards(ByteBuffer out, Card[] hand)
+    {
+        for (int i = 0; i < GameSession.HAND_SIZE; i++)
+            out.put((byte) Cards.code(hand[i]));
+    }
+
+    private void write(SelectionKey key) throws IOException
+    {
+        Connection connection = (Connection) key.attachment();
+        SocketChannel channel = (SocketChannel) key.channel();
+        boolean pending, backlog;
+        do
+        {
+            // frames left waiting for room in out are answered as it drains
+            backlog = answer(connection);
+            connection.out.flip();
+            channel.write(connection.out);
+            pending = connection.out.hasRemaining();
+            connection.out.compact();
+        }
+        while (backlog && !pending);
+        // wait for the socket when the client reads slower than it sends,
+        // and stop reading until the queued frames are answered
+        key.interestOps(pending ? SelectionKey.OP_WRITE | (backlog ? 0 : SelectionKey.OP_READ) : SelectionKey.OP_READ);
+    }
+
+    /**
+     * Task: Closes every client connection, then the selector and the server
+     *       socket. Waits for the selector thread, which does the closing.
+     */
+    public void close() throws IOException
+    {
+        closed = true;
+        Thread running = loop;
+        if (running == null || running == Thread.currentThread())
+        {
+            closeChannels();
+            return;
+        }
+        selector.wakeup();
+        try
+        {
+            running.join();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /* clients first, so every client reads end of stream */
+    private void closeChannels()
+    {
+        try
+        {
+            for (SelectionKey key : selector.keys())
+            {
+                try
+                {
+                    key.channel().close();
+                }
+                catch (IOException e)
+                {
+                    // closing the others matters more
+                }
+            }
+            selector.close();
+        }
+        catch (IOException | ClosedSelectorException e)
+        {
+            // closed before
+        }
+        try
+        {
+            server.close();
+        }
+        catch (IOException e)
+        {
+            // nothing left to do
+        }
+    }
+
+
+    public static void main(String args[]) throws IOException
+    {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 7777;
+        int balance = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        PokerServer server = new PokerServer(port, VideoPoker.getMultipliers(), balance);
+        GameMetrics.register();
+        System.out.println("VideoPoker server listening on port " + server.getPort());
+        server.run();
+    }
+}
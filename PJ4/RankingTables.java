@@ -0,0 +1,369 @@
+/*************************************************
+ File: [RankingTables.java]
+ By: [Artsem Holdvekht]
+ Description: [Offline generated lookup tables of every 5-card hand, mapped off-heap at runtime]
+ *************************************************/
+package PJ4;
+
+import java.io.IOException;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.zip.CRC32C;
+
+
+/** class RankingTables : a versioned, checksummed file with, per 5-card hand
+ *  in colex order (see DrawTable), its VideoPoker hand type and its full
+ *  poker rank, and optionally the DrawTable counts.
+ *
+ *  Generate once:     java PJ4.RankingTables -generate FILE [-nodraws]
+ *  Use at runtime:    RankingTables.map(FILE), or -Dpj4.tables=FILE for DrawTable
+ *
+ *  File (little endian, so mapped IntBuffers need no byte swapping):
+ *      int MAGIC, int VERSION, int sections, int crc32c of the section table
+ *      per section: int id, int 0, long offset, int length, int crc32c of the data
+ *      section data, each at a multiple of ALIGNMENT
+ *
+ *  map() only checks the header, so opening costs a few system calls and
+ *  the pages are read on first use, shared by every JVM mapping the file.
+ *  The header check includes every section lying inside the file and having
+ *  the size of its table, so a truncated file fails with an IOException.
+ *  verify() checks the data checksums (reads the whole file).
+ */
+final class RankingTables {
+
+    static final int MAGIC = 0x504A3454;    // "PJ4T"
+    static final int VERSION = 1;
+
+    /* section ids */
+    static final int CATEGORIES = 1;        // byte hand type + 1
+    static final int RANKS = 2;             // short poker rank, 1 = 7-5-4-3-2 ... 7462 = royal flush
+    static final int DRAW_COUNTS = 10;      // DRAW_COUNTS + k: DrawTable counts of k-card subsets
+
+    /* number of 5-card hands */
+    static final int HANDS = DrawTable.BINOMIAL[Cards.DECK_SIZE][GameSession.HAND_SIZE];
+
+    private static final int HEADER_SIZE = 16;
+    private static final int SECTION_SIZE = 24;
+    private static final int ALIGNMENT = 4096;
+
+    private final Map<Integer, ByteBuffer> sections = new HashMap<Integer, ByteBuffer>();
+    private final Map<Integer, Integer> checksums = new HashMap<Integer, Integer>();
+    private final ByteBuffer categories;
+    private final ShortBuffer ranks;
+
+    private RankingTables(ByteBuffer file) throws IOException
+    {
+        file.order(ByteOrder.LITTLE_ENDIAN);
+        if (file.capacity() < HEADER_SIZE || file.getInt(0) != MAGIC)
+            throw new IOException("Not a ranking tables file");
+        if (file.getInt(4) != VERSION)
+            throw new IOException("Ranking tables version " + file.getInt(4) + ", expected " + VERSION);
+        int count = file.getInt(8);
+        long tableEnd = HEADER_SIZE + (long) count * SECTION_SIZE;
+        if (count < 0 || tableEnd > file.capacity())
+            throw new IOException("Ranking tables section table is truncated");
+        CRC32C crc = new CRC32C();
+        crc.update(file.slice(HEADER_SIZE, count * SECTION_SIZE));
+        if ((int) crc.getValue() != file.getInt(12))
+            throw new IOException("Ranking tables header is corrupt");
+        for (int i = 0; i < count; i++)
+        {
+            int entry = HEADER_SIZE + i * SECTION_SIZE;
+            int id = file.getInt(entry);
+            long offset = file.getLong(entry + 8);
+            int length = file.getInt(entry + 16);
+            if (offset < tableEnd || length < 0 || offset + length > file.capacity())
+                throw new IOException("Ranking tables section " + id + " lies outside the file");
+            long expected = expectedLength(id);
+            if (expected >= 0 && length != expected)
+                throw new IOException("Ranking tables section " + id + " has " + length + " bytes, expected " + expected);
+            ByteBuffer data = file.slice((int) offset, length).order(ByteOrder.LITTLE_ENDIAN);
+            sections.put(id, data);
+            checksums.put(id, file.getInt(entry + 20));
+        }
+        if (!sections.containsKey(CATEGORIES) || !sections.containsKey(RANKS))
+            throw new IOException("Ranking tables without hand types or ranks");
+        categories = sections.get(CATEGORIES);
+        ranks = sections.get(RANKS).asShortBuffer();
+    }
+
+    /* bytes of a known section, -1 for an id this version does not read */
+    private static long expectedLength(int id)
+    {
+        if (id == CATEGORIES)
+            return HANDS;
+        if (id == RANKS)
+            return HANDS * 2L;
+        int k = id - DRAW_COUNTS;
+        if (k >= 0 && k < GameSession.HAND_SIZE)
+            return (long) DrawTable.BINOMIAL[Cards.DECK_SIZE][k] * DrawTable.TYPES * 4;
+        return -1;
+    }
+
+    /**
+     * Task: Maps a ranking tables file read-only and checks its header.
+     */
+    static RankingTables map(Path file) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            return new RankingTables(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Task: Checks the checksum of every section.
+     *
+     * @throws IOException naming the first corrupt section
+     */
+    void verify() throws IOException
+    {
+        CRC32C crc = new CRC32C();
+        for (Map.Entry<Integer, ByteBuffer> section : sections.entrySet())
+        {
+            crc.reset();
+            crc.update(section.getValue().duplicate());
+            if ((int) crc.getValue() != checksums.get(section.getKey()))
+                throw new IOException("Ranking tables section " + section.getKey() + " is corrupt");
+        }
+    }
+
+    /**
+     * Task: Returns the colex index of 5 card codes in ascending order.
+     */
+    static int index(int c0, int c1, int c2, int c3, int c4)
+    {
+        int[][] binomial = DrawTable.BINOMIAL;
+        return c0 + binomial[c1][2] + binomial[c2][3] + binomial[c3][4] + binomial[c4][5];
+    }
+
+    /**
+     * Task: Returns the VideoPoker hand type of 5 card codes in ascending order.
+     */
+    int category(int c0, int c1, int c2, int c3, int c4)
+    {
+        return categories.get(index(c0, c1, c2, c3, c4)) - 1;
+    }
+
+    /**
+     * Task: Returns the poker rank (1-7462, higher wins) of 5 card codes in ascending order.
+     */
+    int rank(int c0, int c1, int c2, int c3, int c4)
+    {
+        return ranks.get(index(c0, c1, c2, c3, c4));
+    }
+
+    /**
+     * Task: Returns the mapped DrawTable, null if the file has no draw counts.
+     */
+    DrawTable getDrawTable()
+    {
+        IntBuffer[] counts = new IntBuffer[GameSession.HAND_SIZE];
+        for (int k = 0; k < counts.length; k++)
+        {
+            ByteBuffer section = sections.get(DRAW_COUNTS + k);
+            if (section == null)
+                return null;
+            counts[k] = section.asIntBuffer();
+        }
+        return new DrawTable(counts);
+    }
+
+    /**
+     * Task: Computes the tables and writes them to file.
+     *
+     * @param draws also write the DrawTable counts (about 11 MB)
+     */
+    static void generate(Path file, boolean draws) throws IOException
+    {
+        ByteBuffer categoryData = ByteBuffer.allocate(HANDS);
+        ByteBuffer rankData = ByteBuffer.allocate(HANDS * 2).order(ByteOrder.LITTLE_ENDIAN);
+
+        // strength key of every hand, ranks are the keys numbered in order
+        int[] keys = new int[HANDS];
+        int[] hand = new int[GameSession.HAND_SIZE];
+        int next = 0;
+        for (hand[4] = 4; hand[4] < Cards.DECK_SIZE; hand[4]++)
+            for (hand[3] = 3; hand[3] < hand[4]; hand[3]++)
+                for (hand[2] = 2; hand[2] < hand[3]; hand[2]++)
+                    for (hand[1] = 1; hand[1] < hand[2]; hand[1]++)
+                        for (hand[0] = 0; hand[0] < hand[1]; hand[0]++)
+                        {
+                            categoryData.put(next, (byte) (HandEvaluator.evaluateCodes(hand[0], hand[1], hand[2], hand[3], hand[4]) + 1));
+                            keys[next++] = strength(hand);
+                        }
+        int[] distinct = Arrays.stream(keys).distinct().sorted().toArray();
+        for (int i = 0; i < HANDS; i++)
+            rankData.putShort(i * 2, (short) (Arrays.binarySearch(distinct, keys[i]) + 1));
+
+        List<Integer> ids = new ArrayList<Integer>();
+        List<ByteBuffer> data = new ArrayList<ByteBuffer>();
+        ids.add(CATEGORIES);
+        data.add(categoryData);
+        ids.add(RANKS);
+        data.add(rankData);
+        if (draws)
+        {
+            DrawTable table = DrawTable.build();
+            for (int k = 0; k < GameSession.HAND_SIZE; k++)
+            {
+                IntBuffer counts = table.getCounts(k);
+                ByteBuffer bytes = ByteBuffer.allocate(counts.remaining() * 4).order(ByteOrder.LITTLE_ENDIAN);
+                bytes.asIntBuffer().put(counts);
+                ids.add(DRAW_COUNTS + k);
+                data.add(bytes);
+            }
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE + ids.size() * SECTION_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putInt(ids.size()).putInt(0);
+        long offset = align(header.capacity());
+        CRC32C crc = new CRC32C();
+        for (int i = 0; i < ids.size(); i++)
+        {
+            crc.reset();
+            crc.update(data.get(i).duplicate());
+            header.putInt(ids.get(i)).putInt(0).putLong(offset).putInt(data.get(i).capacity()).putInt((int) crc.getValue());
+            offset = align(offset + data.get(i).capacity());
+        }
+        crc.reset();
+        crc.update(header.slice(HEADER_SIZE, ids.size() * SECTION_SIZE));
+        header.putInt(12, (int) crc.getValue());
+
+        // write to a temporary file first, a reader never maps a half written file
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            header.clear();
+            writeFully(channel, header, 0);
+            long position = align(header.capacity());
+            for (ByteBuffer section : data)
+            {
+                section.clear();
+                writeFully(channel, section, position);
+                position = align(position + section.capacity());
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static long align(long offset)
+    {
+        return (offset + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer data, long position) throws IOException
+    {
+        while (data.hasRemaining())
+            position += channel.write(data, position);
+    }
+
+    /* poker strength of a hand: category, then the ranks by count and value (ace high) */
+    private static int strength(int[] hand)
+    {
+        int[] counts = new int[15];
+        boolean flush = true;
+        for (int i = 0; i < GameSession.HAND_SIZE; i++)
+        {
+            int rank = Cards.rank(hand[i]);
+            counts[rank == 1 ? 14 : rank]++;
+            flush &= Cards.suit(hand[i]) == Cards.suit(hand[0]);
+        }
+        // ranks ordered by count, then value
+        int kickers = 0;
+        int groups = 0;
+        int most = 0;
+        for (int count = 4; count >= 1; count--)
+            for (int value = 14; value >= 2; value--)
+                if (counts[value] == count)
+                {
+                    kickers = (kickers << 4) | value;
+                    groups++;
+                    most = Math.max(most, count);
+                }
+
+        int high = 0;
+        if (groups == 5)
+        {
+            int top = kickers >>> 16;
+            int low = kickers & 0xF;
+            if (top - low == 4)
+                high = top;
+            else if (top == 14 && (kickers & 0xFFFF) == 0x5432)
+                high = 5;
+        }
+        int category;
+        if (high != 0)
+            category = flush ? 8 : 4;
+        else if (most == 4)
+            category = 7;
+        else if (most == 3 && groups == 2)
+            category = 6;
+        else if (flush)
+            category = 5;
+        else if (most == 3)
+            category = 3;
+        else if (most == 2 && groups == 3)
+            category = 2;
+        else if (most == 2)
+            category = 1;
+        else
+            category = 0;
+        return (category << 20) | (high != 0 ? high : kickers);
+    }
+
+
+    public static void main(String args[]) throws IOException
+    {
+        if (args.length > 1 && args[0].equals("-generate"))
+        {
+            long start = System.nanoTime();
+            boolean draws = !(args.length > 2 && args[2].equals("-nodraws"));
+            generate(Paths.get(args[1]), draws);
+            System.out.printf("Wrote %s (%d bytes) in %.2f s%n", args[1], Files.size(Paths.get(args[1])),
+                    (System.nanoTime() - start) / 1e9);
+            return;
+        }
+        Path file = Paths.get(args.length > 0 ? args[0] : "ranking.tables");
+
+        long start = System.nanoTime();
+        RankingTables tables = map(file);
+        DrawTable mapped = tables.getDrawTable();
+        System.out.printf("Mapped in %.2f ms%n", (System.nanoTime() - start) / 1e6);
+
+        start = System.nanoTime();
+        tables.verify();
+        System.out.printf("Checksums verified in %.0f ms%n", (System.nanoTime() - start) / 1e6);
+
+        int mismatches = 0;
+        int best = 0;
+        int[] hand = new int[GameSession.HAND_SIZE];
+        for (hand[4] = 4; hand[4] < Cards.DECK_SIZE; hand[4]++)
+            for (hand[3] = 3; hand[3] < hand[4]; hand[3]++)
+                for (hand[2] = 2; hand[2] < hand[3]; hand[2]++)
+                    for (hand[1] = 1; hand[1] < hand[2]; hand[1]++)
+                        for (hand[0] = 0; hand[0] < hand[1]; hand[0]++)
+                        {
+                            if (tables.category(hand[0], hand[1], hand[2], hand[3], hand[4])
+                                    != HandEvaluator.evaluateCodes(hand[0], hand[1], hand[2], hand[3], hand[4]))
+                                mismatches++;
+                            best = Math.max(best, tables.rank(hand[0], hand[1], hand[2], hand[3], hand[4]));
+                        }
+        System.out.println("Hand type mismatches: " + mismatches + ", distinct poker ranks: " + best);
+
+        if (mapped != null)
+        {
+            start = System.nanoTime();
+            DrawTable built = DrawTable.build();
+            System.out.printf("Built the draw table in %.0f ms instead%n", (System.nanoTime() - start) / 1e6);
+            boolean same = true;
+            for (int k = 0; k < GameSession.HAND_SIZE; k++)
+                same &= built.getCounts(k).equals(mapped.getCounts(k));
+            System.out.println("Mapped draw table matches: " + same);
+        }
+    }
+}
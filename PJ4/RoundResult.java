@@ -0,0 +1,85 @@
+/*************************************************
+ File: [RoundResult.java]
+ By: [Artsem Holdvekht]
+ Description: [Immutable outcome of one settled VideoPoker round]
+ *************************************************/
+package PJ4;
+
+import java.util.Arrays;
+
+
+/** class RoundResult : what GameSession.settle() returns for a round.
+ *  handType is the index into goodHandTypes[] or HandEvaluator.NO_WIN.
+ */
+final class RoundResult {
+
+    private final Card[] hand;
+    private final long cards;
+    private final int holdMask;
+    private final int handType;
+    private final int bet;
+    private final int payout;
+    private final int balance;
+
+    RoundResult(Card[] hand, long cards, int holdMask, int handType, int bet, int payout, int balance)
+    {
+        this.hand = hand;
+        this.cards = cards;
+        this.holdMask = holdMask;
+        this.handType = handType;
+        this.bet = bet;
+        this.payout = payout;
+        this.balance = balance;
+    }
+
+    /* final hand, the array is owned by this result */
+    public Card[] getHand()
+    {
+        return hand;
+    }
+
+    /* dealt and final hand packed as in HandHistory */
+    public long getCards()
+    {
+        return cards;
+    }
+
+    /* bit i set = card i was held */
+    public int getHoldMask()
+    {
+        return holdMask;
+    }
+
+    public int getHandType()
+    {
+        return handType;
+    }
+
+    public boolean isWin()
+    {
+        return handType != HandEvaluator.NO_WIN;
+    }
+
+    public int getBet()
+    {
+        return bet;
+    }
+
+    /* bet * multiplier, 0 for a losing hand */
+    public int getPayout()
+    {
+        return payout;
+    }
+
+    /* balance after the round was settled */
+    public int getBalance()
+    {
+        return balance;
+    }
+
+    public String toString()
+    {
+        return "RoundResult" + Arrays.toString(hand) + " hold=" + Integer.toBinaryString(holdMask)
+                + " type=" + handType + " bet=" + bet + " payout=" + payout + " balance=" + balance;
+    }
+}
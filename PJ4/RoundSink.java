@@ -0,0 +1,42 @@
+/*************************************************
+ File: [RoundSink.java]
+ By: [Artsem Holdvekht]
+ Description: [Destination of settled VideoPoker rounds]
+ *************************************************/
+package PJ4;
+
+
+/** interface RoundSink : receives the RoundResult of every settled round.
+ *
+ *  GameSession.settle() hands each result to the sink of the session, the
+ *  console of VideoPoker is one sink, TextRoundSink writes a log and
+ *  AsyncRoundSink moves the writing off the dealing threads.
+ *
+ *  accept() is called from the thread that settled the round. Unless an
+ *  implementation says otherwise it is not thread-safe.
+ */
+interface RoundSink extends AutoCloseable {
+
+    /* drops every result */
+    RoundSink NONE = result -> { };
+
+    /**
+     * Task: Takes the result of one settled round.
+     */
+    void accept(RoundResult result);
+
+    /**
+     * Task: Writes out everything accepted so far.
+     */
+    default void flush()
+    {
+    }
+
+    /**
+     * Task: Flushes and releases the sink, no result may be accepted afterwards.
+     */
+    default void close()
+    {
+        flush();
+    }
+}
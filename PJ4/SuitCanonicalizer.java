@@ -0,0 +1,162 @@
+/*************************************************
+ File: [SuitCanonicalizer.java]
+ By: [Artsem Holdvekht]
+ Description: [Maps a 5-card hand to its suit isomorphic class and back]
+ *************************************************/
+package PJ4;
+
+import java.util.List;
+
+
+/** class SuitCanonicalizer : hands that differ only by a renaming of the
+ *  suits have the same hand types, draws and expected values. There are
+ *  134,459 such classes among the 2,598,960 five card hands.
+ *
+ *  The canonical hand of a class is the smallest of the 24 suit renamings
+ *  of the hand, comparing the sorted card codes packed 6 bits per card.
+ *  The packed value is the class key.
+ *
+ *  canonicalize() also returns the way back to the given hand:
+ *    - position[j] = hand position of canonical card j
+ *    - the suit renaming, canonical suit = PERMUTATIONS[perm][suit - 1] + 1
+ */
+final class SuitCanonicalizer {
+
+    /* the 24 orderings of the 4 suits */
+    static final int[][] PERMUTATIONS = new int[24][];
+
+    /* INVERSE[perm] undoes PERMUTATIONS[perm] */
+    static final int[][] INVERSE = new int[24][4];
+
+    /* RENAMED[perm][code] = code with its suit renamed by perm */
+    private static final int[][] RENAMED = new int[24][Cards.DECK_SIZE];
+
+    static
+    {
+        int next = 0;
+        for (int a = 0; a < 4; a++)
+            for (int b = 0; b < 4; b++)
+                for (int c = 0; c < 4; c++)
+                    for (int d = 0; d < 4; d++)
+                        if (a != b && a != c && a != d && b != c && b != d && c != d)
+                            PERMUTATIONS[next++] = new int[] {a, b, c, d};
+
+        for (int perm = 0; perm < 24; perm++)
+        {
+            for (int suit = 0; suit < 4; suit++)
+                INVERSE[perm][PERMUTATIONS[perm][suit]] = suit;
+            for (int code = 0; code < Cards.DECK_SIZE; code++)
+                RENAMED[perm][code] = Cards.code(PERMUTATIONS[perm][Cards.suit(code) - 1] + 1, Cards.rank(code));
+        }
+    }
+
+    private SuitCanonicalizer()
+    {
+    }
+
+    /**
+     * Task: Finds the canonical hand of 5 card codes.
+     *
+     * @param hand      5 card codes, any order
+     * @param canonical receives the 5 canonical codes in ascending order
+     * @param position  receives, for canonical card j, its position in hand
+     * @return the class key, bits 8 and up: packed canonical codes,
+     *         bits 0-7: index of the suit renaming in PERMUTATIONS
+     */
+    static long canonicalize(int[] hand, int[] canonical, int[] position)
+    {
+        long bestKey = Long.MAX_VALUE;
+        int bestPerm = 0;
+        int[] sorted = new int[GameSession.HAND_SIZE];
+        int[] order = new int[GameSession.HAND_SIZE];
+        for (int perm = 0; perm < 24; perm++)
+        {
+            int[] renamed = RENAMED[perm];
+            sortInto(renamed, hand, sorted, order);
+            long key = pack(sorted);
+            if (key < bestKey)
+            {
+                bestKey = key;
+                bestPerm = perm;
+                System.arraycopy(sorted, 0, canonical, 0, GameSession.HAND_SIZE);
+                System.arraycopy(order, 0, position, 0, GameSession.HAND_SIZE);
+            }
+        }
+        return (bestKey << 8) | bestPerm;
+    }
+
+    /**
+     * Task: Class key of a hand given as cards.
+     */
+    static int classOf(List<Card> hand)
+    {
+        int[] codes = new int[GameSession.HAND_SIZE];
+        for (int i = 0; i < codes.length; i++)
+            codes[i] = Cards.code(hand.get(i));
+        return classOf(canonicalize(codes, new int[GameSession.HAND_SIZE], new int[GameSession.HAND_SIZE]));
+    }
+
+    /* the class part of a canonicalize() result */
+    static int classOf(long canonicalized)
+    {
+        return (int) (canonicalized >>> 8);
+    }
+
+    /* the suit renaming part of a canonicalize() result */
+    static int permutationOf(long canonicalized)
+    {
+        return (int) (canonicalized & 0xFF);
+    }
+
+    /**
+     * Task: Maps a canonical card code back to the suits of the original hand.
+     */
+    static int original(int canonicalCode, int perm)
+    {
+        return Cards.code(INVERSE[perm][Cards.suit(canonicalCode) - 1] + 1, Cards.rank(canonicalCode));
+    }
+
+    /* insertion sort of the renamed codes, order[j] = hand position of sorted[j] */
+    private static void sortInto(int[] renamed, int[] hand, int[] sorted, int[] order)
+    {
+        for (int i = 0; i < GameSession.HAND_SIZE; i++)
+        {
+            int code = renamed[hand[i]];
+            int j = i;
+            while (j > 0 && sorted[j - 1] > code)
+            {
+                sorted[j] = sorted[j - 1];
+                order[j] = order[j - 1];
+                j--;
+            }
+            sorted[j] = code;
+            order[j] = i;
+        }
+    }
+
+    private static long pack(int[] sorted)
+    {
+        long key = 0;
+        for (int i = 0; i < GameSession.HAND_SIZE; i++)
+            key = (key << 6) | sorted[i];
+        return key;
+    }
+
+
+    /* Quick test: count the classes of all 5-card hands */
+    public static void main(String args[])
+    {
+        java.util.BitSet classes = new java.util.BitSet(1 << 30);
+        int[] hand = new int[GameSession.HAND_SIZE];
+        int[] canonical = new int[GameSession.HAND_SIZE];
+        int[] position = new int[GameSession.HAND_SIZE];
+        long start = System.nanoTime();
+        for (hand[0] = 0; hand[0] < Cards.DECK_SIZE; hand[0]++)
+            for (hand[1] = hand[0] + 1; hand[1] < Cards.DECK_SIZE; hand[1]++)
+                for (hand[2] = hand[1] + 1; hand[2] < Cards.DECK_SIZE; hand[2]++)
+                    for (hand[3] = hand[2] + 1; hand[3] < Cards.DECK_SIZE; hand[3]++)
+                        for (hand[4] = hand[3] + 1; hand[4] < Cards.DECK_SIZE; hand[4]++)
+                            classes.set(classOf(canonicalize(hand, canonical, position)));
+        System.out.printf("%d classes (expected 134459), %.1f s%n", classes.cardinality(), (System.nanoTime() - start) / 1e9);
+    }
+}
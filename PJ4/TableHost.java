@@ -0,0 +1,182 @@
+/*************************************************
+ File: [TableHost.java]
+ By: [Artsem Holdvekht]
+ Description: [Hosts many concurrent VideoPoker tables in one JVM, with a load test]
+ *************************************************/
+package PJ4;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/** class TableHost : runs every table (a GameSession with its own IntDeck)
+ *  as its own task. On a JVM with virtual threads every table gets a
+ *  virtual thread, otherwise the tables share a pool of one platform
+ *  thread per core. Sessions never share a deck or a random generator.
+ *
+ *  Settled rounds of all tables go to one thread-safe RoundSink. Every
+ *  table records its round latencies into its own histogram, which is
+ *  added to the host's once the table is done, so tables never write to
+ *  the same counters.
+ *
+ *  java PJ4.TableHost [tables] [rounds per table] [round log file]   load test
+ */
+class TableHost implements AutoCloseable {
+
+    /** The player of a table: bets and holds for every round */
+    interface Player
+    {
+        int bet(GameSession session);
+
+        int hold(Card[] hand);
+    }
+
+    /** Bets 1 and plays HoldStrategy.SIMPLE */
+    static final Player SIMPLE_PLAYER = new Player()
+    {
+        public int bet(GameSession session)
+        {
+            return 1;
+        }
+
+        public int hold(Card[] hand)
+        {
+            int[] codes = new int[GameSession.HAND_SIZE];
+            for (int i = 0; i < codes.length; i++)
+                codes[i] = Cards.code(hand[i]);
+            return HoldStrategy.SIMPLE.holdMask(codes);
+        }
+    };
+
+    private final ExecutorService executor;
+    private final int[] multipliers;
+    private final SplittableRandom seeds;
+    private final RoundSink sink;
+
+    private final LongAdder rounds = new LongAdder();
+
+    /* round latencies of the tables that are done and of the ones playing */
+    private final LatencyHistogram doneLatency = new LatencyHistogram();
+    private final Set<LatencyHistogram> playingLatency = ConcurrentHashMap.newKeySet();
+
+    TableHost(int[] multipliers, long seed)
+    {
+        this(multipliers, seed, RoundSink.NONE);
+    }
+
+    /**
+     * Constructor: sink must be thread-safe, e.g. an AsyncRoundSink
+     */
+    TableHost(int[] multipliers, long seed, RoundSink sink)
+    {
+        this.executor = newExecutor();
+        this.multipliers = multipliers.clone();
+        this.seeds = new SplittableRandom(seed);
+        this.sink = sink;
+    }
+
+    /**
+     * Task: Returns a virtual thread per task executor when the JVM has one.
+     */
+    static ExecutorService newExecutor()
+    {
+        try
+        {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        }
+        catch (ReflectiveOperationException e)
+        {
+            return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        }
+    }
+
+    /**
+     * Task: Opens a table with its own deck and plays the given rounds on it.
+     *
+     * @return the session once all rounds are played or its balance is gone
+     */
+    synchronized Future<GameSession> open(int balance, int roundsToPlay, Player player)
+    {
+        final GameSession session = new GameSession(new IntDeck(1, seeds.split()), multipliers, balance);
+        session.setSink(sink);
+        return executor.submit(() -> {
+            LatencyHistogram roundLatency = new LatencyHistogram();
+            playingLatency.add(roundLatency);
+            try
+            {
+                for (int round = 0; round < roundsToPlay && session.getBalance() > 0; round++)
+                {
+                    long start = System.nanoTime();
+                    if (!session.bet(Math.min(player.bet(session), session.getBalance())))
+                        break;
+                    session.hold(player.hold(session.deal()));
+                    session.draw();
+                    session.settle();
+                    roundLatency.record(System.nanoTime() - start);
+                    rounds.increment();
+                }
+            }
+            finally
+            {
+                doneLatency.add(roundLatency);
+                playingLatency.remove(roundLatency);
+            }
+            return session;
+        });
+    }
+
+    long getRounds()
+    {
+        return rounds.sum();
+    }
+
+    /**
+     * Task: Returns the round latencies of every table so far, merged in a new histogram.
+     */
+    LatencyHistogram getRoundLatency()
+    {
+        LatencyHistogram merged = new LatencyHistogram();
+        merged.add(doneLatency);
+        for (LatencyHistogram table : playingLatency)
+            merged.add(table);
+        return merged;
+    }
+
+    public void close()
+    {
+        executor.shutdown();
+    }
+
+
+    /* Load test: play all tables at once, report rounds/sec and round latency */
+    public static void main(String args[]) throws Exception
+    {
+        int tables = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int roundsPerTable = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+
+        // TextRoundSink leaves its stream open, the file is closed last
+        try (java.io.OutputStream file = args.length > 2 ? new java.io.FileOutputStream(args[2]) : null;
+             RoundSink log = file != null ? new AsyncRoundSink(new TextRoundSink(file)) : RoundSink.NONE;
+             TableHost host = new TableHost(VideoPoker.getMultipliers(), 42, log))
+        {
+            System.out.println("Tables: " + tables + ", rounds per table: " + roundsPerTable + ", executor: "
+                    + host.executor.getClass().getSimpleName());
+            long start = System.nanoTime();
+            List<Future<GameSession>> sessions = new ArrayList<Future<GameSession>>(tables);
+            for (int i = 0; i < tables; i++)
+                sessions.add(host.open(1_000_000, roundsPerTable, SIMPLE_PLAYER));
+            long balance = 0;
+            for (Future<GameSession> session : sessions)
+                balance += session.get().getBalance();
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            LatencyHistogram latency = host.getRoundLatency();
+            System.out.printf("Rounds: %d in %.2f s, %.0f rounds/s%n", host.getRounds(), seconds, host.getRounds() / seconds);
+            System.out.printf("Round latency: p50 %d ns, p99 %d ns, p99.9 %d ns%n",
+                    latency.getPercentile(0.50), latency.getPercentile(0.99), latency.getPercentile(0.999));
+            System.out.println("Total balance: " + balance);
+            System.out.println("Metrics: " + GameMetrics.GLOBAL);
+        }
+    }
+}
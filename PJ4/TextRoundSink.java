@@ -0,0 +1,71 @@
+/*************************************************
+ File: [TextRoundSink.java]
+ By: [Artsem Holdvekht]
+ Description: [RoundSink that writes one text line per round into a buffered stream]
+ *************************************************/
+package PJ4;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+
+/** class TextRoundSink : appends
+ *      [hand] hold=10110 Two Pairs bet=1 payout=2 balance=101
+ *  per round to a large buffer, the stream is only written when the buffer
+ *  is full or on flush(). close() flushes but leaves the stream open.
+ *
+ *  Not thread-safe: share it between threads through an AsyncRoundSink.
+ */
+class TextRoundSink implements RoundSink {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Writer out;
+    private final StringBuilder line = new StringBuilder(96);
+
+    TextRoundSink(OutputStream stream)
+    {
+        out = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    public void accept(RoundResult result)
+    {
+        line.setLength(0);
+        Card[] hand = result.getHand();
+        line.append('[');
+        for (int i = 0; i < hand.length; i++)
+        {
+            if (i > 0)
+                line.append(", ");
+            line.append(hand[i]);
+        }
+        line.append("] hold=");
+        for (int i = 0; i < hand.length; i++)
+            line.append((result.getHoldMask() >>> i) & 1);
+        line.append(' ').append(VideoPoker.getHandTypeName(result.getHandType()))
+            .append(" bet=").append(result.getBet())
+            .append(" payout=").append(result.getPayout())
+            .append(" balance=").append(result.getBalance())
+            .append(System.lineSeparator());
+        try
+        {
+            out.append(line);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void flush()
+    {
+        try
+        {
+            out.flush();
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
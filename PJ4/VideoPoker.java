@@ -61,8 +61,18 @@ public class VideoPoker {
             "Royal Pair", "Two Pairs", "Three of a Kind", "Straight", "Flush	",
             "Full House", "Four of a Kind", "Straight Flush", "Royal Flush"};
 
-    // must use only one deck
-    private static final Decks oneDeck = new Decks(1);
+    // one deck per game, owned by this game only: a Decks,
+    // or an IntDeck that shuffles lazily while dealing
+    private final CardDeck playDeck;
+
+    // payouts of this game, the default one uses multipliers
+    private final Paytable paytable;
+
+    // the game logic, play() is the console front end of it
+    private final GameSession session;
+
+    // hint answers of a paytable other than the default one
+    private EvCache hints;
 
     // holding current poker 5-card hand, balance, bet    
     private List<Card> playerHand;
@@ -73,423 +83,166 @@ public class VideoPoker {
      * default constructor, set balance = startingBalance
      */
     public VideoPoker() {
-        playerBalance = startingBalance;
+        this(startingBalance);
     }
 
     /**
      * constructor, set given balance
      */
     public VideoPoker(int balance) {
-        this.playerBalance = balance;
+        this(balance, false);
     }
 
     /**
-     * This display the payout table based on multipliers and goodHandTypes arrays
+     * constructor, set given balance and deck mode
+     * @param lazyShuffle true to deal from the card code deck that shuffles while dealing
      */
-    private void showPayoutTable()
-    {
-        System.out.println("\n\n");
-        System.out.println("Payout Table   	       Multiplier   ");
-        System.out.println("=======================================");
-        int size = multipliers.length;
-        for (int i = size - 1; i >= 0; i--) {
-            System.out.printf("%-16s\t|\t%-20s\n", goodHandTypes[i], multipliers[i]);
-        }
-        System.out.println("\n\n");
+    public VideoPoker(int balance, boolean lazyShuffle) {
+        this(balance, lazyShuffle, Paytable.CLASSIC);
     }
 
     /**
-     * Check current playerHand using multipliers and goodHandTypes arrays
-     * Must print yourHandType (default is "Sorry, you lost") at the end of function.
-     * This can be checked by testCheckHands() and main() method.
+     * constructor, set given balance, deck mode and paytable
      */
-    private void checkHands() {
-        /** Implement comparator to sort the cards based on their rank to be able to count/walk the list easier
-         *  Note: make a shallow copy of playerHand to sort it while checking the cards
-         *        but preserving the original order of the giving hand.
-         */
-
-        List<Card> copyPlayerHand = new ArrayList<Card>(playerHand);
-        //initialize the handType
-
-        int yourHandType = -1;
-
-        Collections.sort(copyPlayerHand, new Comparator<Card>()
-        {
-            public int compare(Card card1, Card card2)
-            {
-                return card1.getRank() - card2.getRank();
-            }
-        });
-
-        // Check for player hand in the order highest to lowest and assign yourHandType
-        if(isRoyalFlush(copyPlayerHand))
-        {
-            yourHandType = 8;
-        }
-        else if(isStraight(copyPlayerHand))
-        {
-            yourHandType = 7;
-        }
-        else if(isFourOfAKind(copyPlayerHand))
-        {
-            yourHandType = 6;
-        }
-        else if(isFullHouse(copyPlayerHand))
-        {
-            yourHandType = 5;
-        }
-        else if(isFlush(copyPlayerHand))
-        {
-            yourHandType = 4;
-        }
-        else if(isStraight(copyPlayerHand))
-        {
-            yourHandType = 3;
-        }
-        else if(isThreeOfAKind(copyPlayerHand))
-        {
-            yourHandType = 2;
-        }
-        else if(isTwoPair(copyPlayerHand))
-        {
-            yourHandType = 1;
-        }
-        else if(isRoyalPair(copyPlayerHand))
-        {
-            yourHandType = 0;
-        }
-
-        // Switch to output the hand type and compute the new playerbalance
-        switch(yourHandType)
-        {
-            case 8:
-                int multiplier = multipliers[yourHandType];
-                System.out.println("You have: " + goodHandTypes[yourHandType]);
-                playerBalance += (playerBet * multiplier);
-                break;
-            case 7:
-                multiplier = multipliers[yourHandType];
-                System.out.println("You have: " + goodHandTypes[yourHandType]);
-                playerBalance += (playerBet * multiplier);
-                break;
-            case 6:
-                multiplier = multipliers[yourHandType];
-                System.out.println("You have: " + goodHandTypes[yourHandType]);
-                playerBalance += (playerBet * multiplier);
-                break;
-            case 5:
-                multiplier = multipliers[yourHandType];
-                System.out.println("You have: " + goodHandTypes[yourHandType]);
-                playerBalance += (playerBet * multiplier);
-                break;
-            case 4:
-                multiplier = multipliers[yourHandType];
-                System.out.println("You have: " + goodHandTypes[yourHandType]);
-                playerBalance += (playerBet * multiplier);
-                break;
-            case 3:
-                multiplier = multipliers[yourHandType];
-                System.out.println("You have: " + goodHandTypes[yourHandType]);
-                playerBalance += (playerBet * multiplier);
-                break;
-            case 2:
-                multiplier = multipliers[yourHandType];
-                System.out.println("You have: " + goodHandTypes[yourHandType]);
-                playerBalance += (playerBet * multiplier);
-                break;
-            case 1:
-                multiplier = multipliers[yourHandType];
-                System.out.println("You have: " + goodHandTypes[yourHandType]);
-                playerBalance += (playerBet * multiplier);
-                break;
-            case 0:
-                multiplier = multipliers[yourHandType];
-                System.out.println("You have: " + goodHandTypes[yourHandType]);
-                playerBalance += (playerBet * multiplier);
-                break;
-            default:
-                System.out.print("Sorry you lost!");
-                playerBalance -= playerBet;
-                break;
-        }
-
+    VideoPoker(int balance, boolean lazyShuffle, Paytable paytable) {
+        this.playerBalance = balance;
+        this.paytable = paytable;
+        playDeck = lazyShuffle ? new IntDeck(1) : new Decks(1);
+        session = new GameSession(playDeck, paytable, balance);
+        session.setSink(this::showResult);
     }
 
-
-    /*************************************************
-     *   add other private methods here ....
-     *
-     *************************************************/
-    /** Implement checks for all the hands and aslo a method for switching the cards in the hand.
-     *  Note: all methods have also built-in checks for other hands within in case if the implementation will change
-     *        from above, also if needed the description of every hand can be found at the top of this file.
-     *
-     */
-
-
     /**
-     * checks for Straight Flush combination
-     * @param copy copy of a player hand
-     * @return boolean true or false
+     * Returns a copy of the default multipliers, indexed by hand type
      */
-    private boolean isStraightFlush(List<Card> copy)
+    static int[] getMultipliers()
     {
-        int consecCards = 1;
-        for (int i = 0; i < numberOfCards - 1; i++) {
-            if (copy.get(i).getRank() == (copy.get(i + 1).getRank() - 1) && (copy.get(i).getSuit() == (copy.get(i + 1).getSuit()))) {
-                consecCards++;
-            } else {
-                return false;
-            }
-        }
-        return consecCards == 5;
-    }//end isStraightFlush
+        return multipliers.clone();
+    }
 
     /**
-     * check for Royal Pair
-     * @param copy copy of a player hand
-     * @return boolean true or false
+     * Returns the name of a hand type, "Nothing" for a losing hand
      */
-    private boolean isRoyalPair(List<Card> copy)
+    static String getHandTypeName(int handType)
     {
-        for(int i = 0; i < numberOfCards - 1;)
-        {
-            if(copy.get(i).getRank() == copy.get(i+1).getRank() && copy.get(i).getRank() >= 11)
-            {
-                return true;
-            }
-            else
-            {
-                i++;
-            }
-        }
-        return false;
-    }//end isRoyalPair
+        return handType == HandEvaluator.NO_WIN ? "Nothing" : goodHandTypes[handType].trim();
+    }
 
     /**
-     * check for Full House
-     * @param copy copy of a player hand
-     * @return boolean true or false
+     * Returns the headless session behind this game, to play rounds without console I/O
      */
-    private boolean isFullHouse(List<Card> copy)
+    GameSession getSession()
     {
-        int countFirstRank = 1;
-        int countLastRank = 1;
-        int firstRank = copy.get(0).getRank();
-        int lastRank= copy.get(copy.size() - 1).getRank();
-
-        for (int i = 1; i < numberOfCards - 1; i++)
-        {
-            if (copy.get(i).getRank() == firstRank)
-            {
-                countFirstRank++;
-            }
-
-            if (copy.get(i).getRank() == lastRank)
-            {
-                countLastRank++;
-            }
-        }
-
-        if((countFirstRank == 3 && countLastRank == 2) || (countFirstRank == 2 && countLastRank== 3))
-        {
-            return true;
-        }
-
-        return false;
-    }//end isFullHouse
+        return session;
+    }
 
     /**
-     * check for  Two Pairs
-     * @param copy copy of a player hand
-     * @return boolean true or false
+     * This display the payout table based on the paytable and goodHandTypes arrays
      */
-    private boolean isTwoPair(List<Card> copy)
+    private void showPayoutTable()
     {
-        int pairCnt = 0;
-
-        if(isFullHouse(copy) || isFourOfAKind(copy))
-        {
-            return false;
-        }
-
-        for (int i = 0; i < numberOfCards - 1; )
-        {
-            if (copy.get(i).getRank() == copy.get(i + 1).getRank())
-            {
-                pairCnt++;
-                i += 2;
-            }
-            else
-            {
-                i++;
-            }
+        System.out.println("\n\n");
+        System.out.println("Payout Table   	       Multiplier   ");
+        System.out.println("=======================================");
+        int[] payouts = paytable.getMultipliers();
+        int size = payouts.length;
+        for (int i = size - 1; i >= 0; i--) {
+            System.out.printf("%-16s\t|\t%-20s\n", goodHandTypes[i], payouts[i]);
         }
-
-        return pairCnt == 2;
-    }//end isTwoPair
+        System.out.println("\n\n");
+    }
 
     /**
-     * check for  Four of a Kind
-     * @param copy copy of a player hand
-     * @return boolean true or false
+     * Check current playerHand using the paytable and goodHandTypes arrays
+     * Must print yourHandType (default is "Sorry, you lost") at the end of function.
+     * This can be checked by testCheckHands() and main() method.
      */
-    public boolean isFourOfAKind(List<Card> copy)
-    {
+    private void checkHands() {
+        // classify the hand through the lookup tables, playerHand is left untouched
+        int yourHandType = HandEvaluator.evaluate(playerHand.get(0), playerHand.get(1), playerHand.get(2),
+                playerHand.get(3), playerHand.get(4));
 
-        for (int rank = 0; rank < Card.Rank.length; rank++)
+        // one table read pays any hand type, NO_WIN pays 0
+        if (yourHandType == HandEvaluator.NO_WIN)
         {
-            int kindCount = 0;
-
-            for (int i = 0; i < numberOfCards - 1 ; i++)
-            {
-
-                if (copy.get(i).getRank() == rank)
-                {
-                    kindCount++;
-                }
-            }
-
-            if (kindCount == 4) {
-                return true;
-            }
-
+            System.out.print("Sorry you lost!");
+            playerBalance -= playerBet;
         }
-
-        return false;
-
-    }
-    /**
-     * check for  Three of a Kind
-     * @param copy copy of a player hand
-     * @return boolean true or false
-     */
-    private boolean isThreeOfAKind(List<Card> copy)
-    {
-        if(isFullHouse(copy))
+        else
         {
-            return false;
+            System.out.println("You have: " + goodHandTypes[yourHandType]);
+            playerBalance += paytable.payout(yourHandType, playerBet);
         }
+    }
 
-        for (int rank = 0; rank < Card.Rank.length; rank++) {
-
-            int kindCount = 0;
-
-            for (int i = 0; i < numberOfCards - 1; i++) {
-
-                if (copy.get(i).getRank() == rank) {
-                    kindCount++;
-                }
-            }
 
-            if (kindCount == 3) {
-                return true;
-            }
-
-        }
+    /*************************************************
+     *   add other private methods here ....
+     *
+     *************************************************/
 
-        return false;
-    }
     /**
-     * check for Straight
+     * check for  Four of a Kind
      * @param copy copy of a player hand
      * @return boolean true or false
      */
-    private boolean isStraight(List<Card> copy)
+    public boolean isFourOfAKind(List<Card> copy)
     {
-        if(isStraightFlush(copy))
-       {
-            return false;
-       }
-
-        int consecCards = 1;
-        for (int i = 0; i < numberOfCards - 1; i++)
-        {
-            if (copy.get(i).getRank() == (copy.get(i + 1).getRank() - 1))
-            {
-                consecCards++;
-            }
-            else
-            {
-                return false;
-            }
-        }
-        return consecCards == 5;
+        return copy.size() == numberOfCards
+                && HandEvaluator.evaluate(copy.get(0), copy.get(1), copy.get(2), copy.get(3), copy.get(4))
+                   == HandEvaluator.FOUR_OF_A_KIND;
     }
 
-    /**
-     * check for Flush
-     * @param copy copy of a player hand
-     * @return boolean true or false
-     */
-    private boolean isFlush(List<Card> copy)
-    {
-
-        if(isRoyalFlush(copy) || isStraightFlush(copy))
-        {
-            return false;
-        }
-
-        for (int i = 0; i < numberOfCards - 1; i++)
-        {
-            if (copy.get(i).getSuit() != copy.get(i + 1).getSuit())
-            {
-                return false;
-            }
-        }
-
-        return true;
-
-    }
 
     /**
-     * check for Royal Flush
-     * @param copy copy of a player hand
-     * @return boolean true or false
+     * Print the hand type of a settled round, the console sink of the session
      */
-    private boolean isRoyalFlush(List<Card> copy)
+    private void showResult(RoundResult result)
     {
-        for (int i = 2; i < numberOfCards - 1; i++) {
-            if (copy.get(0).getRank() == 1 && copy.get(1).getRank() == 10 && (copy.get(i).getRank() - 1) == (copy.get(i - 1).getRank()))
-            {
-                return true;
-            }
-        }
-        return false;
+        if (result.isWin())
+            System.out.println("You have: " + goodHandTypes[result.getHandType()]);
+        else
+            System.out.print("Sorry you lost!");
     }
 
-
     /**
      * Method for taking user's input of cards that should be saved.
-     * Converts Scanner into array of strings, check for good input
-     * Create temporary hand to do all the switching operations and copying it into the actual player hand.
+     * Converts the input line into card positions, check for good input
+     * and hands them to the session as a hold mask, then draws the other cards.
      */
-    private void changeCards() {
-        // stores the number of cards to be changed/dealt
-        int numCardsAdd;
+    private void changeCards(Scanner input) {
+        // bit i set = keep card i
+        int holdMask;
         //flag for do /while loop
         boolean pass;
-        // temporary hand arrayList
-        List<Card> tmpHand = new ArrayList<Card>();
-        // List to be created using the scanner input
-        List<String> keep_cards;
-        Scanner input = new Scanner(System.in);
 
         do
         {
             pass = true;
-            System.out.print("Enter the number of cards to keep: ");
-            String user_input = input.nextLine();
+            holdMask = 0;
+            System.out.print("Enter the number of cards to keep (h for a hint): ");
+            String user_input = input.nextLine().trim();
+            //show the best hold and ask again
+            if (user_input.equalsIgnoreCase("h"))
+            {
+                showHint();
+                pass = false;
+                continue;
+            }
+            //empty input keeps no card
+            if (user_input.isEmpty())
+            {
+                break;
+            }
             //convert input into array splititng the input by comma(,) or white space
-            keep_cards = Arrays.asList(user_input.split("[,\\s]+"));
+            String[] keep_cards = user_input.split("[,\\s]+");
 
             // perform the check to make sure the input is valid
-            for (int i = 0; i < keep_cards.size(); i++)
+            for (int i = 0; i < keep_cards.length; i++)
             {
                 try
                 {
-                    int parseValue = Integer.parseInt(keep_cards.get(i));
+                    int parseValue = Integer.parseInt(keep_cards[i]);
 
                     if (parseValue < 0 || parseValue > numberOfCards)
                     {
@@ -497,62 +250,108 @@ public class VideoPoker {
                         pass = false;
                         break;
                     }
+                    if (parseValue > 0)
+                    {
+                        holdMask |= 1 << (parseValue - 1);
+                    }
                 }
                 catch(NumberFormatException e)
                 {
                     System.out.print("The input is not a number, please try again.");
                     pass = false;
+                    break;
                 }
             }
         }while(!pass);
 
-        //a quick debuggin loop to see the input/cards that should be kept
-       /*for (int i = 0; i < keep_cards.size(); i++) {
-            System.out.println("Keep_Cards: " + keep_cards.get(i));
-        }*/
+        session.hold(holdMask);
+        playerHand = Arrays.asList(session.draw());
+        System.out.println("Your new hand is: " + playerHand + "\n");
 
-        //add cards that should be saved into the temp hand
-        for (int i = 0; i < keep_cards.size(); i++) {
-            tmpHand.add(playerHand.get(Integer.parseInt(keep_cards.get(i)) - 1));
-        }
-        //compute the number of cards that should be dealt
-        numCardsAdd = numberOfCards - keep_cards.size();
+    }//end changeCards
 
+    /**
+     * Hint answers shared by all games, built on the first hint request
+     */
+    private static final class Hints
+    {
+        static final EvCache cache = new EvCache(new HoldAdvisor(multipliers), 1 << 16);
+    }
 
-        try
-        {
-            tmpHand.addAll(oneDeck.deal(numCardsAdd));
-        }
-        catch (PlayingCardException e)
+    /**
+     * Print the best hold of the current hand
+     */
+    private void showHint()
+    {
+        if (hints == null)
         {
-            System.out.println("There was an error while dealing new cards." + e.getMessage());
+            hints = paytable == Paytable.CLASSIC ? Hints.cache
+                    : new EvCache(new HoldAdvisor(paytable.getMultipliers()), 1 << 16);
         }
+        System.out.println("Hint: " + hints.advise(playerHand));
+    }
 
-        // copy temp hand into the actual player hand
-        playerHand = tmpHand;
-        System.out.println("Your new hand is: " + playerHand + "\n");
+    /**
+     * Read a bet until the session accepts it
+     */
+    private void readBet(Scanner input)
+    {
+        while (true)
+        {
+            System.out.println("Please enter your bet: ");
+            int bet;
+            try
+            {
+                bet = Integer.parseInt(input.nextLine().trim());
+            }
+            catch (NumberFormatException e)
+            {
+                System.out.println("The input is not a number, please try again.");
+                continue;
+            }
 
+            if (bet <= 0)
+            {
+                System.out.println("The bet can't be negative or equal to 0.");
+            }
+            else if (!session.bet(bet))
+            {
+                System.out.println("You have insufficient funds!");
+            }
+            else
+            {
+                playerBet = bet;
+                return;
+            }
+        }
+    }
 
-    }//end changeCards
+    /**
+     * Read a y/n answer, true for yes
+     */
+    private static boolean answerYes(Scanner input)
+    {
+        String userInput = input.hasNextLine() ? input.nextLine().trim() : "n";
+        return !userInput.isEmpty() && (userInput.charAt(0) == 'Y' || userInput.charAt(0) == 'y');
+    }
 
     public void play() {
 
 
         /** The main algorithm for single player poker game
+         *  All game rules are in GameSession, this method only does the console I/O.
          *
          * Steps:
          * 		showPayoutTable()
          *
          * 		++
          * 		show balance, get bet
-         *		verify bet value, update balance
-         *		reset deck, shuffle deck,
-         *		deal cards and display cards
+         *		verify bet value (session.bet)
+         *		reset deck, shuffle deck, deal cards (session.deal) and display cards
          *		ask for positions of cards to keep
          *          get positions in one input line
-         *		update cards
-         *		check hands, display proper messages
-         *		update balance if there is a payout
+         *		update cards (session.hold, session.draw)
+         *		check hands, update balance (session.settle), display proper messages
          *		if balance = O:
          *			end of program
          *		else
@@ -562,55 +361,21 @@ public class VideoPoker {
          *			goto ++
          */
         showPayoutTable();
-        boolean goodBet = false;
-        int bet;
         Scanner input = new Scanner(System.in);
-        while(playerBalance > 0)
+        while(session.getBalance() > 0)
         {
-
-
+            playerBalance = session.getBalance();
             System.out.println("Your Balance: "  + playerBalance);
 
-            //while the bet is not good
-            while(!goodBet)
-            {
-                System.out.println("Please enter your bet: ");
-                bet = input.nextInt();
-                if(bet <= 0)
-                {
-                    System.out.println("The bet can't be negative or equal to 0.");
-                }
-                else if((playerBalance - bet) < 0 || bet > playerBalance)
-                {
-                    System.out.println("You have insufficient funds!");
-                }
-                else
-                {
-                    playerBet = bet;
-                    goodBet = true;
-                    //System.out.println("Playerbet = bet " + playerBet);
-                }
-
-            } //once the bet is good, move to the next statement
-
-            oneDeck.reset();    //reset the deck
-            oneDeck.shuffle();  //shuffle the deck
-
-            try
-            {
-                playerHand = oneDeck.deal(numberOfCards);
-            }
-            catch (PlayingCardException e)
-            {
-                System.out.println("There was a problem dealing cards:" + e.getMessage());
-            }
+            readBet(input);
 
+            playerHand = Arrays.asList(session.deal());
             System.out.print("Your current hand: " + playerHand + "\n");
 
+            changeCards(input);  //let user to choose cards to keep
 
-            changeCards();  //let user to choose cards to keep
-
-            checkHands();   //check for a hand combination
+            RoundResult result = session.settle();   //check for a hand combination, the sink prints it
+            playerBalance = result.getBalance();
 
             //update the balance
             System.out.print("\nYour new balance is: " + playerBalance + "\n");
@@ -620,32 +385,20 @@ public class VideoPoker {
             {
                 System.out.println("Your balance is: " + playerBalance);
                 System.out.println("Good Bye, good luck next time!");
-                System.exit(0);
+                return;
             }
             //else prompt user for input to play again and/or print the payout table
-            else
+            System.out.println("\nYour balance is: " + playerBalance + " Would you like to play another game ( Please enter y or n)?");
+            if(!answerYes(input))
             {
-                System.out.println("\nYour balance is: " + playerBalance + " Would you like to play another game ( Please enter y or n)?");
-                input = new Scanner(System.in);
-                String userInput = input.nextLine();
-
-                if(userInput.charAt(0) == 'N' || userInput.charAt(0) == 'n')
-                {
-                    System.out.println("Bye bye!");
-                    System.exit(0);
-                }
-                else
-                {
-                    System.out.println("Would you like to see a Payout table again (y or n)?");
-                        userInput = input.nextLine();
-                    if(userInput.charAt(0) == 'Y' || userInput.charAt(0) == 'y')
-                    {
-                        showPayoutTable();
-                    }
-                }
+                System.out.println("Bye bye!");
+                return;
+            }
+            System.out.println("Would you like to see a Payout table again (y or n)?");
+            if(answerYes(input))
+            {
+                showPayoutTable();
             }
-
-            goodBet = false;
         }
 
     }// end play()
@@ -666,11 +419,11 @@ public class VideoPoker {
 
             // set Royal Flush
             System.out.println("Royal Flush");
-            playerHand.add(new Card(4,1));
-            playerHand.add(new Card(4,10));
-            playerHand.add(new Card(4,12));
-            playerHand.add(new Card(4,11));
-            playerHand.add(new Card(4,13));
+            playerHand.add(Cards.of(4, 1));
+            playerHand.add(Cards.of(4, 10));
+            playerHand.add(Cards.of(4, 12));
+            playerHand.add(Cards.of(4, 11));
+            playerHand.add(Cards.of(4, 13));
             System.out.println(playerHand);
             checkHands();
             System.out.println("After teh checkHand(): "+playerHand);
@@ -678,7 +431,7 @@ public class VideoPoker {
 
             // set Straight Flush
             System.out.println("Straight Flush");
-            playerHand.set(0,new Card(4,9));
+            playerHand.set(0,Cards.of(4, 9));
             System.out.println(playerHand);
             checkHands();
             System.out.println("After teh checkHand(): "+playerHand);
@@ -686,7 +439,7 @@ public class VideoPoker {
 
             // set Straight
             System.out.println("Straight");
-            playerHand.set(4, new Card(2,8));
+            playerHand.set(4, Cards.of(2, 8));
             System.out.println(playerHand);
             checkHands();
             System.out.println("After teh checkHand(): "+playerHand);
@@ -694,7 +447,7 @@ public class VideoPoker {
 
             // set Flush
             System.out.println("Flush");
-            playerHand.set(4, new Card(4,5));
+            playerHand.set(4, Cards.of(4, 5));
             System.out.println(playerHand);
             checkHands();
             System.out.println("After teh checkHand(): "+playerHand);
@@ -706,11 +459,11 @@ public class VideoPoker {
             // set Four of a Kind
             System.out.println("Four of a Kind");
             playerHand.clear();
-            playerHand.add(new Card(4,8));
-            playerHand.add(new Card(1,8));
-            playerHand.add(new Card(4,12));
-            playerHand.add(new Card(2,8));
-            playerHand.add(new Card(3,8));
+            playerHand.add(Cards.of(4, 8));
+            playerHand.add(Cards.of(1, 8));
+            playerHand.add(Cards.of(4, 12));
+            playerHand.add(Cards.of(2, 8));
+            playerHand.add(Cards.of(3, 8));
             System.out.println(playerHand);
             checkHands();
             System.out.println("After teh checkHand(): "+playerHand);
@@ -718,7 +471,7 @@ public class VideoPoker {
 
             // set Three of a Kind
             System.out.println("Three of a Kind");
-            playerHand.set(4, new Card(4,11));
+            playerHand.set(4, Cards.of(4, 11));
             System.out.println(playerHand);
             checkHands();
             System.out.println("After teh checkHand(): "+playerHand);
@@ -726,7 +479,7 @@ public class VideoPoker {
 
             // set Full House
             System.out.println("Full House");
-            playerHand.set(2, new Card(2,11));
+            playerHand.set(2, Cards.of(2, 11));
             System.out.println(playerHand);
             checkHands();
             System.out.println("After teh checkHand(): "+playerHand);
@@ -734,7 +487,7 @@ public class VideoPoker {
 
             // set Two Pairs
             System.out.println("Two Pairs");
-            playerHand.set(1, new Card(2,9));
+            playerHand.set(1, Cards.of(2, 9));
             System.out.println(playerHand);
             checkHands();
             System.out.println("After teh checkHand(): "+playerHand);
@@ -742,7 +495,7 @@ public class VideoPoker {
 
             // set Royal Pair
             System.out.println("Royal Pair");
-            playerHand.set(0, new Card(2,3));
+            playerHand.set(0, Cards.of(2, 3));
             System.out.println(playerHand);
             checkHands();
             System.out.println("After teh checkHand(): "+playerHand);
@@ -750,7 +503,7 @@ public class VideoPoker {
 
             // non Royal Pair
             System.out.println("Non Royal Pair");
-            playerHand.set(2, new Card(4,3));
+            playerHand.set(2, Cards.of(4, 3));
             System.out.println(playerHand);
             checkHands();
             System.out.println("After teh checkHand(): "+playerHand);
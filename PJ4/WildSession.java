@@ -0,0 +1,211 @@
+/*************************************************
+ File: [WildSession.java]
+ By: [Artsem Holdvekht]
+ Description: [Headless round of a wild card variant (Deuces Wild, Joker Poker) on card codes]
+ *************************************************/
+package PJ4;
+
+import java.util.*;
+import java.util.random.RandomGenerator;
+
+
+/** class WildSession : one player's game of a WildVariant.
+ *
+ *  A round is played in this order, like GameSession:
+ *      bet(amount)  ->  deal(hand)  ->  hold(mask)  ->  draw(hand)  ->  settle()
+ *
+ *  The hand is kept as card codes, a joker (Cards.JOKER) has no Card, and
+ *  is dealt from the variant's own IntDeck. settle() classifies it with
+ *  WildVariant.evaluate() and pays with the variant's paytable: a hand
+ *  with a multiplier adds bet * multiplier to the balance, like a winning
+ *  GameSession hand, every other hand takes the bet.
+ *
+ *  java PJ4.WildSession [rounds]   plays both variants holding wild cards and pairs
+ */
+class WildSession {
+
+    /* round steps */
+    private static final int BETTING = 0;
+    private static final int BET_PLACED = 1;
+    private static final int DEALT = 2;
+    private static final int DRAWN = 3;
+
+    private final WildVariant variant;
+    private final IntDeck deck;
+
+    /* current hand, card codes */
+    private final int[] hand = new int[GameSession.HAND_SIZE];
+
+    private int balance;
+    private int bet;
+    private int holdMask;
+    private int handType;
+    private int state = BETTING;
+
+    WildSession(WildVariant variant, int balance, RandomGenerator random)
+    {
+        this.variant = variant;
+        this.deck = variant.newDeck(random);
+        this.balance = balance;
+    }
+
+    /**
+     * Task: Places the bet of the next round.
+     *
+     * @return false if the bet is not positive or greater than the balance
+     */
+    public boolean bet(int amount)
+    {
+        requireState(BETTING, BET_PLACED);
+        if (amount <= 0 || amount > balance)
+        {
+            return false;
+        }
+        bet = amount;
+        state = BET_PLACED;
+        return true;
+    }
+
+    /**
+     * Task: Deals a new hand.
+     *
+     * @param cards receives the 5 dealt card codes
+     */
+    public void deal(int[] cards)
+    {
+        requireState(BET_PLACED, BET_PLACED);
+        deck.reset();
+        deck.deal(hand, 0, GameSession.HAND_SIZE);
+        System.arraycopy(hand, 0, cards, 0, GameSession.HAND_SIZE);
+        holdMask = 0;
+        state = DEALT;
+    }
+
+    /**
+     * Task: Selects the cards to keep, bit i of mask set = keep card i.
+     */
+    public void hold(int mask)
+    {
+        requireState(DEALT, DEALT);
+        holdMask = mask & GameSession.HOLD_ALL;
+    }
+
+    /**
+     * Task: Replaces every card that is not held.
+     *
+     * @param cards receives the 5 final card codes
+     */
+    public void draw(int[] cards)
+    {
+        requireState(DEALT, DEALT);
+        for (int i = 0; i < GameSession.HAND_SIZE; i++)
+        {
+            if ((holdMask & (1 << i)) == 0)
+                deck.deal(hand, i, 1);
+        }
+        System.arraycopy(hand, 0, cards, 0, GameSession.HAND_SIZE);
+        state = DRAWN;
+    }
+
+    /**
+     * Task: Classifies the final hand, pays it and updates the balance.
+     *
+     * @return the payout, bet * multiplier of the hand type
+     */
+    public int settle()
+    {
+        requireState(DRAWN, DRAWN);
+        handType = variant.evaluate(hand[0], hand[1], hand[2], hand[3], hand[4]);
+        int payout = variant.payout(handType, bet);
+        if (payout == 0)
+            balance -= bet;
+        else
+            balance += payout;
+        state = BETTING;
+        return payout;
+    }
+
+    public WildVariant getVariant()
+    {
+        return variant;
+    }
+
+    public int getBalance()
+    {
+        return balance;
+    }
+
+    /* hand type of the last settled round */
+    public int getHandType()
+    {
+        return handType;
+    }
+
+    private void requireState(int first, int last)
+    {
+        if (state < first || state > last)
+        {
+            throw new IllegalStateException("Round step out of order, state " + state);
+        }
+    }
+
+    /* keeps the wild cards and every natural card whose rank is dealt twice or more */
+    private static int holdWildsAndPairs(WildVariant variant, int[] hand)
+    {
+        int mask = 0;
+        for (int i = 0; i < GameSession.HAND_SIZE; i++)
+        {
+            if (variant.isWild(hand[i]))
+            {
+                mask |= 1 << i;
+                continue;
+            }
+            for (int j = 0; j < GameSession.HAND_SIZE; j++)
+            {
+                if (j != i && !variant.isWild(hand[j]) && Cards.rank(hand[j]) == Cards.rank(hand[i]))
+                    mask |= 1 << i;
+            }
+        }
+        return mask;
+    }
+
+
+    /* Test: play both variants, print the first rounds, the hand types and the return */
+    public static void main(String args[])
+    {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int[] cards = new int[GameSession.HAND_SIZE];
+        for (WildVariant variant : new WildVariant[] {WildVariant.DEUCES_WILD, WildVariant.JOKER_POKER})
+        {
+            WildSession session = new WildSession(variant, Integer.MAX_VALUE / 2, new SplittableRandom(42));
+            long[] counts = new long[WildVariant.TYPES + 1];
+            int start = session.getBalance();
+            System.out.println(variant);
+            for (int round = 0; round < rounds; round++)
+            {
+                session.bet(1);
+                session.deal(cards);
+                String dealt = round < 3 ? names(cards) : null;
+                int mask = holdWildsAndPairs(variant, cards);
+                session.hold(mask);
+                session.draw(cards);
+                int payout = session.settle();
+                counts[session.getHandType() + 1]++;
+                if (round < 3)
+                    System.out.printf("  dealt %s hold %s final %s: %s, paid %d%n", dealt,
+                            Integer.toBinaryString(mask), names(cards), WildVariant.getHandTypeName(session.getHandType()), payout);
+            }
+            for (int type = WildVariant.TYPES - 1; type >= HandEvaluator.NO_WIN; type--)
+                System.out.printf("  %-20s %9d%n", WildVariant.getHandTypeName(type), counts[type + 1]);
+            System.out.printf("  %d rounds, balance change %d%n", rounds, (long) session.getBalance() - start);
+        }
+    }
+
+    private static String names(int[] cards)
+    {
+        StringBuilder text = new StringBuilder("[");
+        for (int i = 0; i < cards.length; i++)
+            text.append(i > 0 ? ", " : "").append(Cards.name(cards[i]));
+        return text.append(']').toString();
+    }
+}
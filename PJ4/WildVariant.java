@@ -0,0 +1,262 @@
+/*************************************************
+ File: [WildVariant.java]
+ By: [Artsem Holdvekht]
+ Description: [Wild card VideoPoker variants (Deuces Wild, Joker Poker) with a table driven evaluator]
+ *************************************************/
+package PJ4;
+
+import java.util.*;
+
+
+/** class WildVariant : a game where some card codes are wild.
+ *
+ *  Hand types 0-8 are the HandEvaluator ones (ROYAL_FLUSH is a natural
+ *  royal flush, ROYAL_PAIR is a pair of the variant's paying ranks), the
+ *  wild cards add FIVE_OF_A_KIND, WILD_ROYAL and FOUR_WILDS.
+ *
+ *  Evaluation never tries a substitution for a wild card. Per card code the
+ *  variant holds the rank bit, suit bit and rank nibble of a natural card
+ *  and 1 in WILDS[] for a wild one (a wild card adds nothing but counts).
+ *  From the natural cards' parts and the number of wild cards:
+ *    - most of a kind   = highest rank count + wilds
+ *    - straight         = distinct natural ranks that fit one straight
+ *                         window, read from STRAIGHT_FITS[rank mask]
+ *    - flush            = AND of the natural suit bits
+ *  so a wild hand costs the same table reads as a natural one.
+ *
+ *  WildSession plays a variant round by round on card codes.
+ *
+ *  java PJ4.WildVariant   hand type counts of every hand and hands/sec
+ */
+final class WildVariant {
+
+    /* hand types added by wild cards, after HandEvaluator.ROYAL_FLUSH */
+    static final int FIVE_OF_A_KIND = 9;
+    static final int WILD_ROYAL     = 10;
+    static final int FOUR_WILDS     = 11;
+
+    static final int TYPES = FOUR_WILDS + 1;
+
+    static final String[] TYPE_NAMES = {
+            "High Pair", "Two Pairs", "Three of a Kind", "Straight", "Flush",
+            "Full House", "Four of a Kind", "Straight Flush", "Natural Royal Flush",
+            "Five of a Kind", "Wild Royal Flush", "Four Wilds"};
+
+    /* rank masks that fit in one straight, with wild cards for the gaps */
+    private static final boolean[] STRAIGHT_FITS = new boolean[1 << 13];
+
+    private static final long NIBBLE_ONES = 0x1111111111111L;
+
+    static
+    {
+        // A-5 ... 9-K, then 10-A
+        for (int low = 0; low <= 9; low++)
+        {
+            int window = low < 9 ? 0x1F << low : HandEvaluator.ROYAL_RANKS;
+            for (int mask = window; mask != 0; mask = (mask - 1) & window)
+                STRAIGHT_FITS[mask] = true;
+        }
+    }
+
+    /** Deuces Wild, full pay: pairs and two pairs pay nothing */
+    static final WildVariant DEUCES_WILD = new WildVariant("Deuces Wild", 0, 0,
+            new int[] {0, 0, 1, 2, 2, 3, 5, 9, 800, 15, 25, 200});
+
+    /** Joker Poker, Kings or Better */
+    static final WildVariant JOKER_POKER = new WildVariant("Joker Poker", 1, (1 << 12) | 1,
+            new int[] {1, 1, 2, 3, 5, 7, 20, 50, 800, 200, 100, 0});
+
+    private final String name;
+    private final int jokers;
+
+    /* rank mask of the pairs that pay */
+    private final int highRanks;
+    private final long highNibbles;
+
+    /* multiplier of handType + 1, 0 first */
+    private final int[] payouts = new int[TYPES + 1];
+
+    /* per card code, jokers included */
+    private final int[] rankBits = new int[Cards.DECK_SIZE + 1];
+    private final int[] suitBits = new int[Cards.DECK_SIZE + 1];
+    private final long[] nibbles = new long[Cards.DECK_SIZE + 1];
+    private final int[] wilds = new int[Cards.DECK_SIZE + 1];
+
+    /**
+     * Constructor: jokers 0 makes the deuces wild, otherwise the jokers are the only wild cards.
+     *
+     * @param highRanks   rank mask (A = bit 0) of the pairs that pay as ROYAL_PAIR
+     * @param multipliers multiplier of every hand type, TYPES values
+     */
+    WildVariant(String name, int jokers, int highRanks, int[] multipliers)
+    {
+        if (multipliers.length != TYPES)
+        {
+            throw new IllegalArgumentException("A wild paytable needs " + TYPES + " multipliers");
+        }
+        this.name = name;
+        this.jokers = jokers;
+        this.highRanks = highRanks;
+        long high = 0;
+        for (int rank = 1; rank <= 13; rank++)
+            if ((highRanks & HandEvaluator.RANK_BIT[rank]) != 0)
+                high |= HandEvaluator.RANK_NIBBLE[rank];
+        highNibbles = high;
+        System.arraycopy(multipliers, 0, payouts, 1, TYPES);
+
+        for (int code = 0; code <= Cards.DECK_SIZE; code++)
+        {
+            boolean wild = code == Cards.JOKER || (jokers == 0 && Cards.rank(code) == 2);
+            if (wild)
+            {
+                suitBits[code] = 0xF;
+                wilds[code] = 1;
+            }
+            else
+            {
+                rankBits[code] = HandEvaluator.CODE_RANK_BIT[code];
+                suitBits[code] = HandEvaluator.CODE_SUIT_BIT[code];
+                nibbles[code] = HandEvaluator.CODE_NIBBLE[code];
+            }
+        }
+    }
+
+    /**
+     * Task: Returns a shuffled deck of this variant, 52 cards plus its jokers.
+     */
+    IntDeck newDeck(java.util.random.RandomGenerator random)
+    {
+        return new IntDeck(1, jokers, random);
+    }
+
+    boolean isWild(int code)
+    {
+        return wilds[code] != 0;
+    }
+
+    /**
+     * Task: Returns the hand type of 5 card codes (order does not matter).
+     */
+    int evaluate(int c0, int c1, int c2, int c3, int c4)
+    {
+        int ranks = rankBits[c0] | rankBits[c1] | rankBits[c2] | rankBits[c3] | rankBits[c4];
+        int suits = suitBits[c0] & suitBits[c1] & suitBits[c2] & suitBits[c3] & suitBits[c4];
+        long histogram = nibbles[c0] + nibbles[c1] + nibbles[c2] + nibbles[c3] + nibbles[c4];
+        int wildCount = wilds[c0] + wilds[c1] + wilds[c2] + wilds[c3] + wilds[c4];
+        return evaluate(ranks, suits, histogram, wildCount);
+    }
+
+    /**
+     * Task: Returns the hand type from the parts of the natural cards and the wild card count.
+     *
+     * @param ranks     OR of the rank bits of the natural cards
+     * @param suits     AND of the suit bits of the natural cards, 0xF without any
+     * @param histogram sum of the rank nibbles of the natural cards
+     */
+    int evaluate(int ranks, int suits, long histogram, int wildCount)
+    {
+        long bit0 = histogram & NIBBLE_ONES;
+        long bit1 = (histogram >>> 1) & NIBBLE_ONES;
+        long pairs = bit1 & ~bit0;
+        if (wildCount == 0)
+        {
+            int type = HandEvaluator.evaluate(ranks, suits, histogram);
+            if (type == HandEvaluator.ROYAL_PAIR && (pairs & highNibbles) == 0)
+                return HandEvaluator.NO_WIN;
+            return type;
+        }
+        if (wildCount == 4 && jokers == 0)
+            return FOUR_WILDS;
+
+        boolean distinct = Integer.bitCount(ranks) == GameSession.HAND_SIZE - wildCount;
+        boolean flush = suits != 0;
+        boolean straight = distinct && STRAIGHT_FITS[ranks];
+        if (straight && flush && (ranks & ~HandEvaluator.ROYAL_RANKS) == 0)
+            return WILD_ROYAL;
+
+        // highest count of one natural rank
+        int most = ((histogram >>> 2) & NIBBLE_ONES) != 0 ? 4 : (bit0 & bit1) != 0 ? 3 : pairs != 0 ? 2 : ranks != 0 ? 1 : 0;
+        most += wildCount;
+        if (most >= 5)
+            return FIVE_OF_A_KIND;
+        if (straight && flush)
+            return HandEvaluator.STRAIGHT_FLUSH;
+        if (most == 4)
+            return HandEvaluator.FOUR_OF_A_KIND;
+        if (Long.bitCount(pairs) == 2)
+            return HandEvaluator.FULL_HOUSE;
+        if (flush)
+            return HandEvaluator.FLUSH;
+        if (straight)
+            return HandEvaluator.STRAIGHT;
+        if (most == 3)
+            return HandEvaluator.THREE_OF_A_KIND;
+        // one wild card and distinct ranks: pairs with the highest card
+        return (ranks & highRanks) != 0 ? HandEvaluator.ROYAL_PAIR : HandEvaluator.NO_WIN;
+    }
+
+    /**
+     * Task: Returns bet * multiplier of a hand type, 0 for NO_WIN.
+     */
+    int payout(int handType, int bet)
+    {
+        return bet * payouts[handType + 1];
+    }
+
+    static String getHandTypeName(int handType)
+    {
+        return handType == HandEvaluator.NO_WIN ? "Nothing" : TYPE_NAMES[handType];
+    }
+
+    String getName()
+    {
+        return name;
+    }
+
+    public String toString()
+    {
+        return name + " " + Arrays.toString(Arrays.copyOfRange(payouts, 1, payouts.length));
+    }
+
+
+    /* Test: count the hand types of every hand of both variants, compare speed with HandEvaluator */
+    public static void main(String args[])
+    {
+        for (WildVariant variant : new WildVariant[] {DEUCES_WILD, JOKER_POKER})
+        {
+            int cards = Cards.DECK_SIZE + variant.jokers;
+            long[] counts = new long[TYPES + 1];
+            long hands = 0;
+            long start = System.nanoTime();
+            for (int c4 = 4; c4 < cards; c4++)
+                for (int c3 = 3; c3 < c4; c3++)
+                    for (int c2 = 2; c2 < c3; c2++)
+                        for (int c1 = 1; c1 < c2; c1++)
+                            for (int c0 = 0; c0 < c1; c0++)
+                            {
+                                counts[variant.evaluate(c0, c1, c2, c3, c4) + 1]++;
+                                hands++;
+                            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.println(variant + ", " + hands + " hands");
+            for (int type = TYPES - 1; type >= HandEvaluator.NO_WIN; type--)
+                System.out.printf("  %-20s %9d%n", getHandTypeName(type), counts[type + 1]);
+            System.out.printf("  %.0f hands/s%n", hands / seconds);
+        }
+
+        long[] counts = new long[HandEvaluator.ROYAL_FLUSH + 2];
+        long hands = 0;
+        long start = System.nanoTime();
+        for (int c4 = 4; c4 < Cards.DECK_SIZE; c4++)
+            for (int c3 = 3; c3 < c4; c3++)
+                for (int c2 = 2; c2 < c3; c2++)
+                    for (int c1 = 1; c1 < c2; c1++)
+                        for (int c0 = 0; c0 < c1; c0++)
+                        {
+                            counts[HandEvaluator.evaluateCodes(c0, c1, c2, c3, c4) + 1]++;
+                            hands++;
+                        }
+        System.out.printf("Natural HandEvaluator: %.0f hands/s (%d royal flushes)%n",
+                hands / ((System.nanoTime() - start) / 1e9), counts[HandEvaluator.ROYAL_FLUSH + 1]);
+    }
+}
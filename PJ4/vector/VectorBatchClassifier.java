@@ -0,0 +1,171 @@
+/*************************************************
+ File: [VectorBatchClassifier.java]
+ By: [Artsem Holdvekht]
+ Description: [Classifies packed 5-card hands many lanes at a time with the Java Vector API]
+ *************************************************/
+package PJ4.vector;
+
+import PJ4.BatchClassifier;
+import java.util.SplittableRandom;
+import jdk.incubator.vector.*;
+
+
+/** class VectorBatchClassifier : BatchClassifier on IntVectors, one hand
+ *  per lane. Needs --add-modules jdk.incubator.vector to compile and run,
+ *  which is why it lives in its own package: javac PJ4/*.java does not see it.
+ *
+ *  Per lane, with lanewise operations only (no table gathers):
+ *    - card code c -> suit (c * 79) >>> 10 and rank c - 13 * suit
+ *      (exact division by 13 for c in 0-63)
+ *    - rank mask = OR of 1 << rank, flush = AND of 1 << suit
+ *    - equal = number of card pairs with the same rank:
+ *      0 no pair, 1 pair, 2 two pairs, 3 trips, 4 full house, 6+ quads
+ *    - without pairs, straight = rank mask is 5 consecutive bits or 10-A
+ *  The hand types are the HandEvaluator ones, including its rule that a
+ *  multi-deck flush with paired ranks is at least a FLUSH.
+ *
+ *  java --add-modules jdk.incubator.vector PJ4.vector.VectorBatchClassifier
+ *      checks every 5-card hand against BatchClassifier and reports hands/sec
+ */
+public final class VectorBatchClassifier {
+
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+    /* 10 J Q K A */
+    private static final int ROYAL_RANKS = 0x1E01;
+
+    /* J Q K A */
+    private static final int HIGH_RANKS = 0x1C01;
+
+    private VectorBatchClassifier()
+    {
+    }
+
+    /**
+     * Task: Writes the hand type of hands[i] to types[i] for i in [offset, offset + length).
+     */
+    public static void classify(int[] hands, int[] types, int offset, int length)
+    {
+        int end = offset + length;
+        int vectorEnd = offset + SPECIES.loopBound(length);
+        int i = offset;
+        for (; i < vectorEnd; i += SPECIES.length())
+            classify(IntVector.fromArray(SPECIES, hands, i)).intoArray(types, i);
+        BatchClassifier.classify(hands, types, i, end - i);
+    }
+
+    private static IntVector classify(IntVector hands)
+    {
+        int bits = BatchClassifier.CARD_BITS;
+        IntVector c0 = hands.and(BatchClassifier.CARD_MASK);
+        IntVector c1 = hands.lanewise(VectorOperators.LSHR, bits).and(BatchClassifier.CARD_MASK);
+        IntVector c2 = hands.lanewise(VectorOperators.LSHR, 2 * bits).and(BatchClassifier.CARD_MASK);
+        IntVector c3 = hands.lanewise(VectorOperators.LSHR, 3 * bits).and(BatchClassifier.CARD_MASK);
+        IntVector c4 = hands.lanewise(VectorOperators.LSHR, 4 * bits).and(BatchClassifier.CARD_MASK);
+
+        IntVector s0 = suit(c0), s1 = suit(c1), s2 = suit(c2), s3 = suit(c3), s4 = suit(c4);
+        IntVector r0 = c0.sub(s0.mul(13)), r1 = c1.sub(s1.mul(13)), r2 = c2.sub(s2.mul(13)),
+                  r3 = c3.sub(s3.mul(13)), r4 = c4.sub(s4.mul(13));
+
+        IntVector one = IntVector.broadcast(SPECIES, 1);
+        IntVector b0 = one.lanewise(VectorOperators.LSHL, r0), b1 = one.lanewise(VectorOperators.LSHL, r1),
+                  b2 = one.lanewise(VectorOperators.LSHL, r2), b3 = one.lanewise(VectorOperators.LSHL, r3),
+                  b4 = one.lanewise(VectorOperators.LSHL, r4);
+        IntVector ranks = b0.or(b1).or(b2).or(b3).or(b4);
+        IntVector suits = one.lanewise(VectorOperators.LSHL, s0).and(one.lanewise(VectorOperators.LSHL, s1))
+                .and(one.lanewise(VectorOperators.LSHL, s2)).and(one.lanewise(VectorOperators.LSHL, s3))
+                .and(one.lanewise(VectorOperators.LSHL, s4));
+
+        // count the equal rank pairs, collect the paired ranks
+        IntVector zero = IntVector.zero(SPECIES);
+        IntVector equal = zero;
+        IntVector paired = zero;
+        VectorMask<Integer> m;
+        m = r0.eq(r1); equal = equal.add(one, m); paired = paired.lanewise(VectorOperators.OR, b0, m);
+        m = r0.eq(r2); equal = equal.add(one, m); paired = paired.lanewise(VectorOperators.OR, b0, m);
+        m = r0.eq(r3); equal = equal.add(one, m); paired = paired.lanewise(VectorOperators.OR, b0, m);
+        m = r0.eq(r4); equal = equal.add(one, m); paired = paired.lanewise(VectorOperators.OR, b0, m);
+        m = r1.eq(r2); equal = equal.add(one, m); paired = paired.lanewise(VectorOperators.OR, b1, m);
+        m = r1.eq(r3); equal = equal.add(one, m); paired = paired.lanewise(VectorOperators.OR, b1, m);
+        m = r1.eq(r4); equal = equal.add(one, m); paired = paired.lanewise(VectorOperators.OR, b1, m);
+        m = r2.eq(r3); equal = equal.add(one, m); paired = paired.lanewise(VectorOperators.OR, b2, m);
+        m = r2.eq(r4); equal = equal.add(one, m); paired = paired.lanewise(VectorOperators.OR, b2, m);
+        m = r3.eq(r4); equal = equal.add(one, m); paired = paired.lanewise(VectorOperators.OR, b3, m);
+
+        VectorMask<Integer> flush = suits.compare(VectorOperators.NE, 0);
+        VectorMask<Integer> royal = ranks.eq(ROYAL_RANKS);
+        IntVector lowest = ranks.and(ranks.neg());
+        VectorMask<Integer> straight = ranks.eq(lowest.mul(0x1F)).or(royal);
+
+        // five distinct ranks
+        IntVector distinct = IntVector.broadcast(SPECIES, BatchClassifier.NO_WIN)
+                .blend(BatchClassifier.STRAIGHT, straight)
+                .blend(BatchClassifier.FLUSH, flush)
+                .blend(BatchClassifier.STRAIGHT_FLUSH, flush.and(straight))
+                .blend(BatchClassifier.ROYAL_FLUSH, flush.and(royal));
+
+        IntVector type = IntVector.broadcast(SPECIES, BatchClassifier.NO_WIN)
+                .blend(BatchClassifier.ROYAL_PAIR, equal.eq(1).and(paired.and(HIGH_RANKS).compare(VectorOperators.NE, 0)))
+                .blend(BatchClassifier.TWO_PAIRS, equal.eq(2))
+                .blend(BatchClassifier.THREE_OF_A_KIND, equal.eq(3))
+                .blend(BatchClassifier.FULL_HOUSE, equal.eq(4))
+                .blend(BatchClassifier.FOUR_OF_A_KIND, equal.compare(VectorOperators.GE, 6));
+        // only possible with more than one deck: a flush with paired ranks
+        type = type.blend(BatchClassifier.FLUSH, flush.and(type.compare(VectorOperators.LT, BatchClassifier.FLUSH)));
+        return type.blend(distinct, equal.eq(0));
+    }
+
+    /* code / 13 for codes 0-63 */
+    private static IntVector suit(IntVector codes)
+    {
+        return codes.mul(79).lanewise(VectorOperators.LSHR, 10);
+    }
+
+
+    /* Test: every 5-card hand and random multi-deck hands against BatchClassifier, then hands/sec */
+    public static void main(String args[])
+    {
+        int[] hands = new int[2598960];
+        int next = 0;
+        for (int c4 = 4; c4 < 52; c4++)
+            for (int c3 = 3; c3 < c4; c3++)
+                for (int c2 = 2; c2 < c3; c2++)
+                    for (int c1 = 1; c1 < c2; c1++)
+                        for (int c0 = 0; c0 < c1; c0++)
+                            hands[next++] = BatchClassifier.pack(c0, c1, c2, c3, c4);
+        int[] random = new int[1 << 20];
+        SplittableRandom generator = new SplittableRandom(42);
+        for (int i = 0; i < random.length; i++)
+            random[i] = BatchClassifier.pack(generator.nextInt(52), generator.nextInt(52), generator.nextInt(52),
+                    generator.nextInt(52), generator.nextInt(52));
+
+        System.out.println("Vector species: " + SPECIES);
+        for (int[] batch : new int[][] {hands, random})
+        {
+            int[] scalarTypes = new int[batch.length];
+            int[] vectorTypes = new int[batch.length];
+            BatchClassifier.classify(batch, scalarTypes, 0, batch.length);
+            classify(batch, vectorTypes, 0, batch.length);
+            int mismatches = 0;
+            for (int i = 0; i < batch.length; i++)
+                if (scalarTypes[i] != vectorTypes[i])
+                    mismatches++;
+            System.out.println(batch.length + " hands, mismatches: " + mismatches);
+        }
+
+        int[] types = new int[hands.length];
+        for (int pass = 0; pass < 5; pass++)
+        {
+            long start = System.nanoTime();
+            for (int repeat = 0; repeat < 10; repeat++)
+                BatchClassifier.classify(hands, types, 0, hands.length);
+            double scalar = 10.0 * hands.length / ((System.nanoTime() - start) / 1e9);
+            start = System.nanoTime();
+            for (int repeat = 0; repeat < 10; repeat++)
+                classify(hands, types, 0, hands.length);
+            double vector = 10.0 * hands.length / ((System.nanoTime() - start) / 1e9);
+            if (pass >= 2)
+                System.out.printf("scalar %12.0f hands/s, vector %12.0f hands/s (x%.2f)%n", scalar, vector, vector / scalar);
+        }
+    }
+}